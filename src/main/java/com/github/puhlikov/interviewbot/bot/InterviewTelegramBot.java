@@ -7,16 +7,25 @@ import com.github.puhlikov.interviewbot.bot.util.KeyboardBuilder;
 import com.github.puhlikov.interviewbot.enums.QuestionState;
 import com.github.puhlikov.interviewbot.enums.RegistrationState;
 import com.github.puhlikov.interviewbot.enums.SettingsState;
+import com.github.puhlikov.interviewbot.exception.BotException;
 import com.github.puhlikov.interviewbot.model.BotUser;
 import com.github.puhlikov.interviewbot.model.Question;
+import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import com.github.puhlikov.interviewbot.service.ChatState;
+import com.github.puhlikov.interviewbot.service.ChatStateEvictedEvent;
+import com.github.puhlikov.interviewbot.service.ChatStateStore;
 import com.github.puhlikov.interviewbot.service.ErrorHandler;
 import com.github.puhlikov.interviewbot.service.MessageSender;
 import com.github.puhlikov.interviewbot.service.QuestionCacheService;
 import com.github.puhlikov.interviewbot.service.QuestionService;
 import com.github.puhlikov.interviewbot.service.QuestionSessionService;
+import com.github.puhlikov.interviewbot.service.ReferenceAnswerService;
 import com.github.puhlikov.interviewbot.service.RegistrationService;
+import com.github.puhlikov.interviewbot.service.StreamingAnswerSender;
+import com.github.puhlikov.interviewbot.service.QuestionTopicClassifier;
 import com.github.puhlikov.interviewbot.service.WorkingApiService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
@@ -28,10 +37,12 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMar
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
 
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Component
 public class InterviewTelegramBot extends TelegramLongPollingBot {
@@ -46,7 +57,12 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
     private final QuestionCacheService questionCacheService;
     private final MessageSender messageSender;
     private final ErrorHandler errorHandler;
-    private final Set<Long> awaitingText = ConcurrentHashMap.newKeySet();
+    private final UpdateDispatcher updateDispatcher;
+    private final StreamingAnswerSender streamingAnswerSender;
+    private final ReferenceAnswerService referenceAnswerService;
+    private final QuestionTopicClassifier questionTopicClassifier;
+    private final boolean streamAnswers;
+    private final ChatStateStore chatStateStore;
 
     public InterviewTelegramBot(
             @Value("${telegram.bot.username}") String username,
@@ -57,7 +73,13 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
             WorkingApiService workingApiService,
             QuestionCacheService questionCacheService,
             MessageSender messageSender,
-            ErrorHandler errorHandler
+            ErrorHandler errorHandler,
+            UpdateDispatcher updateDispatcher,
+            StreamingAnswerSender streamingAnswerSender,
+            ReferenceAnswerService referenceAnswerService,
+            QuestionTopicClassifier questionTopicClassifier,
+            ChatStateStore chatStateStore,
+            @Value("${bot.answer.streaming.enabled:true}") boolean streamAnswers
     ) {
         super(token);
         this.username = username;
@@ -68,6 +90,12 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
         this.questionCacheService = questionCacheService;
         this.messageSender = messageSender;
         this.errorHandler = errorHandler;
+        this.updateDispatcher = updateDispatcher;
+        this.streamingAnswerSender = streamingAnswerSender;
+        this.referenceAnswerService = referenceAnswerService;
+        this.questionTopicClassifier = questionTopicClassifier;
+        this.chatStateStore = chatStateStore;
+        this.streamAnswers = streamAnswers;
         this.messageSender.setBot(this);
     }
 
@@ -78,6 +106,11 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
 
     @Override
     public void onUpdateReceived(Update update) {
+        // Обновления одного чата выполняются последовательно, разных чатов - параллельно
+        updateDispatcher.dispatch(extractChatId(update), () -> handleUpdate(update));
+    }
+
+    private void handleUpdate(Update update) {
         try {
             if (update.hasMessage() && update.getMessage().hasText()) {
                 handleMessage(update);
@@ -85,9 +118,7 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
                 handleCallback(update.getCallbackQuery());
             }
         } catch (Exception e) {
-            Long chatId = update.hasMessage() 
-                ? update.getMessage().getChatId() 
-                : (update.hasCallbackQuery() ? update.getCallbackQuery().getMessage().getChatId() : null);
+            Long chatId = extractChatId(update);
             if (chatId != null) {
                 errorHandler.handleError(chatId, e);
             } else {
@@ -96,6 +127,16 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
         }
     }
 
+    private static Long extractChatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+
     private void handleMessage(Update update) {
         var msg = update.getMessage();
         var chatId = msg.getChatId();
@@ -131,19 +172,25 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
             !registrationService.isInSettingsState(chatId, SettingsState.AWAITING_TIME)) {
             
             var cache = questionCacheService.getUserCache(chatId);
-            Question currentQuestion = cache.getCurrentQuestion();
+            // Номер запоминаем сейчас: оценка может прийти, когда пользователь уже перешел дальше
+            int questionIndex = cache.getCurrentIndex();
+            long latencyMs = cache.millisSinceQuestionShown();
+            Question currentQuestion = questionCacheService.getCurrentQuestion(chatId);
             
             if (currentQuestion != null) {
-                // Удаляем из awaitingText, если там был (на случай, если нажали кнопку)
-                awaitingText.remove(chatId);
+                // Сбрасываем ожидание текста, если оно было (на случай, если нажали кнопку)
+                ChatState chatState = chatStateStore.find(chatId);
+                if (chatState != null) {
+                    chatState.setAwaitingText(false);
+                }
                 
                 execSend(chatId, "⏳ Оцениваю ваш ответ...");
                 
                 // Оцениваем ответ пользователя
-                workingApiService.evaluateAnswer(currentQuestion.getQuestionText(), text)
-                    .subscribe(evaluation -> {
+                subscribeForChat(chatId, workingApiService.evaluateAnswer(currentQuestion.getQuestionText(), text),
+                    evaluation -> {
                         // Сохраняем оценку только в кэш сессии
-                        cache.addScore(evaluation.getScore());
+                        questionCacheService.recordAnswer(cache, questionIndex, evaluation.getScore(), latencyMs, false);
                         
                         // Формируем сообщение с оценкой и дополнениями
                         StringBuilder message = new StringBuilder();
@@ -165,8 +212,15 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
                             showContinueOptions(chatId);
                         }
                     }, error -> {
-                        errorHandler.handleErrorWithMessage(chatId, error, 
-                            "❌ Произошла ошибка при оценке ответа. Попробуйте еще раз.");
+                        // Оценка не получена: в сессию и историю ничего не записывается
+                        questionCacheService.markUnscored(cache, questionIndex);
+                        if (error instanceof BotException) {
+                            // Отказ без обращения к модели (перегрузка, автомат защиты) - сообщаем причину
+                            errorHandler.handleError(chatId, error);
+                        } else {
+                            errorHandler.handleErrorWithMessage(chatId, error,
+                                "❌ Произошла ошибка при оценке ответа. Попробуйте еще раз.");
+                        }
                         showContinueOptions(chatId);
                     });
             }
@@ -307,15 +361,32 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
                 
                 // Проверяем, находится ли пользователь в сессии вопросов
                 var cache = questionCacheService.getUserCache(chatId);
-                if (cache != null) {
-                    // Пользователь в сессии - ставим оценку 0 только в кэш
-                    cache.addScore(0);
+                // Пользователь в сессии - ставим оценку 0 только в кэш, если вопрос текущий и еще не оценен
+                int questionIndex = cache != null ? cache.getCurrentIndex() : -1;
+                boolean scoredZero = cache != null && cache.getQuestionId(questionIndex) == qid
+                        && questionCacheService.recordAnswer(cache, questionIndex, 0, cache.millisSinceQuestionShown(), true);
+                
+                // Сохраненный ответ отправляем сразу, иначе генерируем и запоминаем.
+                // В потоковом режиме ответ появляется в чате по мере генерации
+                Optional<String> stored = referenceAnswerService.findStored(qid);
+                Mono<String> answer;
+                if (stored.isPresent()) {
+                    execSend(chatId, Messages.formattedAnswer(stored.get()));
+                    answer = Mono.just(stored.get());
+                } else if (streamAnswers) {
+                    answer = streamingAnswerSender.stream(chatId, Messages.formattedAnswer(""),
+                            workingApiService.streamAnswer(q.getQuestionText()))
+                        .flatMap(text -> referenceAnswerService.storeAsync(qid, text).thenReturn(text));
+                } else {
+                    answer = referenceAnswerService.generate(q)
+                        .doOnNext(text -> execSend(chatId, Messages.formattedAnswer(text)));
                 }
                 
-                workingApiService.getAnswer(q.getQuestionText()).subscribe(answer -> {
-                    execSend(chatId, Messages.formattedAnswer(answer));
+                subscribeForChat(chatId, answer, text -> {
                     if (cache != null) {
-                        execSend(chatId, "⚠️ Поскольку вы посмотрели ответ, за этот вопрос поставлена оценка **0/10**");
+                        if (scoredZero) {
+                            execSend(chatId, "⚠️ Поскольку вы посмотрели ответ, за этот вопрос поставлена оценка **0/10**");
+                        }
                         
                         // Проверяем, был ли это последний вопрос
                         if (questionCacheService.isLastQuestion(chatId)) {
@@ -327,7 +398,7 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
                     } else {
                         showContinueOptions(chatId);
                     }
-                });
+                }, error -> logger.error("Failed to send answer for chatId: {}", chatId, error));
             });
         } catch (NumberFormatException e) {
             errorHandler.handleErrorSilently(e);
@@ -394,7 +465,7 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
         // Проверяем, относится ли вопрос к программированию
         execSend(chatId, Messages.CHECKING_QUESTION);
         
-        workingApiService.isProgrammingRelated(text)
+        questionTopicClassifier.isProgrammingRelated(text)
             .subscribe(isRelated -> {
                 if (isRelated) {
                     questionSessionService.setQuestionText(chatId, text);
@@ -479,24 +550,25 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
             : com.github.puhlikov.interviewbot.bot.constants.AppConstants.DEFAULT_QUESTIONS_PER_SESSION;
 
         // Проверяем, есть ли достаточное количество вопросов в базе
-        var availableQuestions = questionService.getRandomQuestions(1);
-        if (availableQuestions.isEmpty()) {
+        if (!questionService.hasActiveQuestions()) {
             execSend(chatId, Messages.NO_QUESTIONS_FOR_SESSION);
             return;
         }
 
+        // Ответы и оценки прошлой сессии больше не нужны
+        chatStateStore.cancelPendingRequests(chatId);
         questionCacheService.initializeUserCache(chatId, questionsCount);
 
         // Проверяем, что кэш инициализирован корректно
         if (questionCacheService.getUserCache(chatId) == null ||
-                questionCacheService.getUserCache(chatId).getQuestions().isEmpty()) {
+                questionCacheService.getUserCache(chatId).getTotalQuestions() == 0) {
             execSend(chatId, Messages.FAILED_TO_LOAD_QUESTIONS);
             return;
         }
 
         // Обновляем клавиатуру на "Закончить сессию"
         var cache = questionCacheService.getUserCache(chatId);
-        int totalQuestions = cache != null ? cache.getQuestions().size() : questionsCount;
+        int totalQuestions = cache != null ? cache.getTotalQuestions() : questionsCount;
         String sessionStartMessage = String.format(
             "✅ **Сессия начата!**\n\n" +
             "📊 Количество вопросов в сессии: **%d**\n\n" +
@@ -527,7 +599,7 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
         
         String message;
         if (isFirstQuestion) {
-            int total = totalQuestions != null ? totalQuestions : (cache != null ? cache.getQuestions().size() : 1);
+            int total = totalQuestions != null ? totalQuestions : (cache != null ? cache.getTotalQuestions() : 1);
             message = String.format(
                 "%s\n\n📊 Вопросов в сессии: **%d**\n\n%s%s",
                 Messages.QUESTION_SESSION_STARTED,
@@ -557,7 +629,12 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
     }
 
     private void handleNextQuestion(Long chatId) {
-        Question nextQuestion = questionCacheService.getNextQuestion(chatId);
+        var cache = questionCacheService.getUserCache(chatId);
+        if (cache != null && questionCacheService.moveToNextQuestion(cache) == UserQuestionCache.NOT_ADVANCED) {
+            // Повторное нажатие кнопки: переход с этого вопроса уже выполнен
+            return;
+        }
+        Question nextQuestion = questionCacheService.getCurrentQuestion(chatId);
         if (nextQuestion != null) {
             sendNextQuestion(chatId, false);
         } else {
@@ -581,33 +658,82 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
             return;
         }
         
+        chatStateStore.cancelPendingRequests(chatId);
+        sendSessionResults(chatId, cache, "🏁 **Сессия вопросов завершена!**");
+        questionCacheService.clearUserCache(chatId);
+    }
+
+    /**
+     * Подписка на ответ модели, привязанная к чату: отменяется при завершении или перезапуске
+     * сессии и при удалении состояния чата, чтобы устаревший ответ не пришел в чат.
+     * Обработчики выполняются в очереди чата {@link UpdateDispatcher}, а не в потоке Reactor,
+     * поэтому не пересекаются с обработкой сообщений того же чата. Запрос считается незавершенным,
+     * пока обработчик не выполнен: отмена в этот промежуток тоже не даст ответу попасть в чат.
+     */
+    private <T> void subscribeForChat(Long chatId, Mono<T> request, Consumer<T> onResult,
+                                      Consumer<Throwable> onError) {
+        ChatState state = chatStateStore.getOrCreate(chatId);
+        Disposable.Swap subscription = Disposables.swap();
+        state.trackRequest(subscription);
+        subscription.update(request
+                .doOnCancel(() -> state.untrackRequest(subscription))
+                .subscribe(
+                        result -> updateDispatcher.dispatch(chatId, () -> {
+                            if (!subscription.isDisposed()) {
+                                onResult.accept(result);
+                            }
+                        }),
+                        error -> updateDispatcher.dispatch(chatId, () -> {
+                            try {
+                                if (!subscription.isDisposed()) {
+                                    onError.accept(error);
+                                }
+                            } finally {
+                                state.untrackRequest(subscription);
+                            }
+                        }),
+                        // Очередь чата упорядочена: снимается после обработчика результата
+                        () -> updateDispatcher.dispatch(chatId, () -> state.untrackRequest(subscription))));
+    }
+
+    /**
+     * Сессия, брошенная пользователем, удалена из памяти по неактивности - отправляем итоги
+     */
+    @EventListener
+    public void onChatStateEvicted(ChatStateEvictedEvent event) {
+        var cache = event.state().getQuestionSession();
+        questionCacheService.discardEvictedSession(event.chatId());
+        updateDispatcher.dispatch(event.chatId(), () ->
+                sendSessionResults(event.chatId(), cache, "⌛ **Сессия вопросов завершена из-за неактивности**"));
+    }
+
+    private void sendSessionResults(Long chatId, UserQuestionCache cache, String title) {
         // Вычисляем среднюю оценку на основе отвеченных вопросов
         String completionMessage;
         int totalQuestions = cache.getTotalQuestions();
-        int answeredCount = cache.getScores().size();
+        int answeredCount = cache.getAnsweredCount();
         
-        if (!cache.getScores().isEmpty()) {
+        if (answeredCount > 0) {
             double averageScore = cache.getAverageScore();
             
             completionMessage = String.format(
-                "🏁 **Сессия вопросов завершена!**\n\n" +
+                "%s\n\n" +
                 "📊 **Ваш результат:**\n" +
                 "• Средняя оценка: **%.1f/10**\n" +
                 "• Отвечено вопросов: **%d из %d**\n\n" +
                 "Спасибо за прохождение сессии!",
-                averageScore, answeredCount, totalQuestions
+                title, averageScore, answeredCount, totalQuestions
             );
         } else {
             completionMessage = String.format(
-                "🏁 **Сессия вопросов завершена!**\n\n" +
+                "%s\n\n" +
                 "📊 Вопросов в сессии: **%d**\n\n" +
                 "Вы не ответили ни на один вопрос.",
-                totalQuestions
+                title, totalQuestions
             );
         }
         
         execSend(chatId, completionMessage, KeyboardBuilder.createMainReplyKeyboard());
-        questionCacheService.clearUserCache(chatId);
     }
 
     private void showSettingsMenu(Long chatId, BotUser user) {
@@ -712,15 +838,18 @@ public class InterviewTelegramBot extends TelegramLongPollingBot {
         }
     }
     
+    /**
+     * Ответ на нажатие кнопки уходит через очередь чата, а не синхронно из потока обработки обновлений.
+     */
     private void answerCallback(CallbackQuery cq, String text) {
-        try {
-            execute(AnswerCallbackQuery.builder()
-                    .callbackQueryId(cq.getId())
-                    .text(text)
-                    .build());
-        } catch (Exception e) {
-            errorHandler.handleErrorSilently(e);
-        }
+        messageSender.submit(cq.getMessage().getChatId(), AnswerCallbackQuery.builder()
+                        .callbackQueryId(cq.getId())
+                        .text(text)
+                        .build())
+                .exceptionally(error -> {
+                    errorHandler.handleErrorSilently(error);
+                    return null;
+                });
     }
 
     private void handleBackToMenu(Long chatId) {
@@ -0,0 +1,138 @@
+package com.github.puhlikov.interviewbot.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Диспетчер входящих обновлений.
+ * Обновления одного чата обрабатываются строго по порядку (всегда в одном и том же потоке-«полосе»),
+ * а обновления разных чатов - параллельно. Очередь каждой полосы ограничена.
+ */
+@Component
+public class UpdateDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    private final ThreadPoolExecutor[] stripes;
+    private final Counter rejectedCounter;
+
+    public UpdateDispatcher(
+            @Value("${bot.dispatcher.stripes:8}") int stripeCount,
+            @Value("${bot.dispatcher.queue-capacity:256}") int queueCapacity,
+            @Value("${bot.dispatcher.offer-timeout-ms:1000}") long offerTimeoutMs,
+            MeterRegistry meterRegistry
+    ) {
+        if (stripeCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Dispatcher stripes and queue capacity must be positive");
+        }
+        this.rejectedCounter = Counter.builder("bot.dispatcher.rejected")
+                .description("Updates dropped because the stripe queue stayed full")
+                .register(meterRegistry);
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    new StripeThreadFactory(i),
+                    blockingHandler(offerTimeoutMs));
+            stripes[i] = executor;
+            Gauge.builder("bot.dispatcher.queue.depth", executor, e -> e.getQueue().size())
+                    .description("Pending updates per dispatcher stripe")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Ставит обработку обновления в очередь полосы, закрепленной за чатом.
+     * Если очередь переполнена, вызывающий поток ждет освобождения места (backpressure на получение обновлений),
+     * а по истечении таймаута обновление отбрасывается.
+     */
+    public void dispatch(Long chatId, Runnable task) {
+        stripes[stripeFor(chatId)].execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Unhandled error while processing update for chatId: {}", chatId, e);
+            }
+        });
+    }
+
+    int stripeFor(Long chatId) {
+        if (chatId == null) {
+            return 0;
+        }
+        return Math.floorMod(Long.hashCode(chatId), stripes.length);
+    }
+
+    public int getQueueDepth(int stripe) {
+        return stripes[stripe].getQueue().size();
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ThreadPoolExecutor stripe : stripes) {
+            try {
+                if (!stripe.awaitTermination(5, TimeUnit.SECONDS)) {
+                    stripe.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                stripe.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private RejectedExecutionHandler blockingHandler(long offerTimeoutMs) {
+        return (task, executor) -> {
+            if (executor.isShutdown()) {
+                rejectedCounter.increment();
+                return;
+            }
+            try {
+                if (!executor.getQueue().offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    rejectedCounter.increment();
+                    logger.warn("Dispatcher stripe queue is full, update dropped");
+                }
+            } catch (InterruptedException e) {
+                rejectedCounter.increment();
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static final class StripeThreadFactory implements ThreadFactory {
+        private final int stripe;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private StripeThreadFactory(int stripe) {
+            this.stripe = stripe;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "update-stripe-" + stripe + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -13,7 +13,6 @@ public final class AppConstants {
     // Оценки
     public static final int MIN_SCORE = 0;
     public static final int MAX_SCORE = 10;
-    public static final int DEFAULT_SCORE_ON_ERROR = 5;
     
     // API
     public static final int API_RESPONSE_TIMEOUT_MINUTES = 5;
@@ -117,6 +117,8 @@ public final class Messages {
     // Error messages
     public static final String USER_NOT_FOUND = "❌ Сначала зарегистрируйтесь с помощью /start";
     public static final String ERROR_OCCURRED = "❌ Произошла ошибка. Попробуйте позже.";
+    public static final String AI_OVERLOADED = "❌ Сервис ИИ сейчас перегружен. Попробуйте через минуту.";
+    public static final String AI_UNAVAILABLE = "❌ Сервис ИИ временно недоступен. Попробуйте через минуту.";
     
     private Messages() {
         // Utility class
@@ -3,18 +3,26 @@ package com.github.puhlikov.interviewbot.config;
 import com.github.puhlikov.interviewbot.bot.InterviewTelegramBot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+/**
+ * Регистрация бота в Telegram.
+ * Режим получения обновлений задается свойством telegram.bot.mode: polling (по умолчанию) или webhook.
+ */
 @Configuration
 public class BotConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(BotConfig.class);
 
     @Bean
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "polling", matchIfMissing = true)
     public TelegramBotsApi telegramBotsApi(InterviewTelegramBot bot) {
         try {
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
@@ -27,4 +35,34 @@ public class BotConfig {
             throw new RuntimeException("Failed to register bot", e);
         }
     }
+
+    /**
+     * В режиме webhook сообщает Telegram адрес, на который нужно присылать обновления.
+     * Сами обновления принимает {@link com.github.puhlikov.interviewbot.web.TelegramWebhookController}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+    public SetWebhook telegramWebhook(
+            InterviewTelegramBot bot,
+            @Value("${telegram.webhook.url}") String baseUrl,
+            @Value("${telegram.webhook.path}") String path,
+            @Value("${telegram.webhook.secret:}") String secret
+    ) {
+        SetWebhook setWebhook = SetWebhook.builder()
+                .url(stripTrailingSlash(baseUrl) + path)
+                .secretToken(secret.isEmpty() ? null : secret)
+                .build();
+        try {
+            bot.execute(setWebhook);
+            logger.info("✅ Webhook registered for bot {} at {}", bot.getBotUsername(), setWebhook.getUrl());
+            return setWebhook;
+        } catch (TelegramApiException e) {
+            logger.error("❌ Failed to register webhook: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to register webhook", e);
+        }
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
 }
@@ -0,0 +1,49 @@
+package com.github.puhlikov.interviewbot.config;
+
+import com.github.puhlikov.interviewbot.service.llm.CallType;
+import com.github.puhlikov.interviewbot.service.llm.GenerationProfiles;
+import com.github.puhlikov.interviewbot.service.llm.LlmProvider;
+import com.github.puhlikov.interviewbot.service.llm.LlmRouter;
+import com.github.puhlikov.interviewbot.service.llm.LlmUpstreamGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Провайдеры языковой модели: маршруты и профили генерации по типам обращений, защита каждого провайдера.
+ * Маршрут задается списком имен через запятую в bot.llm.routes.answer / evaluate / classify.
+ */
+@Configuration
+@EnableConfigurationProperties(GenerationProfiles.class)
+public class LlmConfig {
+
+    @Bean
+    public LlmRouter llmRouter(
+            List<LlmProvider> providers,
+            GenerationProfiles profiles,
+            @Value("${bot.llm.routes.answer:gpt-chatbot,openai}") List<String> answerRoute,
+            @Value("${bot.llm.routes.evaluate:gpt-chatbot,openai}") List<String> evaluateRoute,
+            @Value("${bot.llm.routes.classify:gpt-chatbot,openai}") List<String> classifyRoute,
+            @Value("${bot.llm.limiter.initial-limit:10}") int initialLimit,
+            @Value("${bot.llm.limiter.min-limit:2}") int minLimit,
+            @Value("${bot.llm.limiter.max-limit:50}") int maxLimit,
+            @Value("${bot.llm.limiter.latency-threshold-ms:15000}") long latencyThresholdMs,
+            @Value("${bot.llm.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${bot.llm.circuit.open-ms:30000}") long openMs,
+            MeterRegistry meterRegistry
+    ) {
+        return new LlmRouter(providers,
+                Map.of(CallType.ANSWER, answerRoute,
+                        CallType.EVALUATE, evaluateRoute,
+                        CallType.CLASSIFY, classifyRoute),
+                profiles,
+                provider -> new LlmUpstreamGuard(provider.name(), initialLimit, minLimit, maxLimit,
+                        latencyThresholdMs, failureThreshold, openMs, meterRegistry),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.puhlikov.interviewbot.exception;
+
+/**
+ * Запрос к модели отклонен без обращения к API: превышен лимит одновременных запросов
+ * или API недоступен (автомат защиты открыт)
+ */
+public class UpstreamUnavailableException extends BotException {
+    public UpstreamUnavailableException(String userMessage, String technicalMessage) {
+        super(userMessage, technicalMessage);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.puhlikov.interviewbot.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Результат ответа на вопрос в сессии: история для отслеживания прогресса пользователя.
+ */
+@Entity
+@Table(name = "answer_events")
+public class AnswerEvent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "chat_id", nullable = false)
+	private Long chatId;
+
+	@Column(name = "question_id", nullable = false)
+	private Long questionId;
+
+	@Column(name = "score", nullable = false)
+	private short score;
+
+	// Время от показа вопроса до ответа
+	@Column(name = "latency_ms", nullable = false)
+	private long latencyMs;
+
+	// Пользователь посмотрел эталонный ответ вместо своего
+	@Column(name = "revealed", nullable = false)
+	private boolean revealed;
+
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+	protected AnswerEvent() {
+	}
+
+	public AnswerEvent(Long chatId, Long questionId, int score, long latencyMs, boolean revealed, Instant createdAt) {
+		this.chatId = chatId;
+		this.questionId = questionId;
+		this.score = (short) score;
+		this.latencyMs = latencyMs;
+		this.revealed = revealed;
+		this.createdAt = createdAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Long getChatId() {
+		return chatId;
+	}
+
+	public Long getQuestionId() {
+		return questionId;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public long getLatencyMs() {
+		return latencyMs;
+	}
+
+	public boolean isRevealed() {
+		return revealed;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
@@ -58,4 +58,18 @@ public class BotUser {
 
     @Column(name = "questions_per_session")
     private Integer questionsPerSession = 20;
-}
\ No newline at end of file
+
+    /**
+     * Момент следующего ежедневного уведомления (UTC); null - уведомления не запланированы.
+     */
+    @Column(name = "next_notification_at")
+    private Instant nextNotificationAt;
+
+    /**
+     * Копия для изменения: пользователи в кэше не изменяются.
+     */
+    public BotUser copy() {
+        return new BotUser(id, chatId, username, firstName, lastName, scheduleTime, timezone,
+                registrationState, createdAt, questionsPerSession, nextNotificationAt);
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.puhlikov.interviewbot.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Сохраненная сессия вопросов: восстанавливается после перезапуска приложения.
+ * Id вопросов (по 8 байт) и оценки хранятся в bytea в том же компактном виде, что и в памяти.
+ */
+@Entity
+@Table(name = "question_sessions")
+public class PersistedQuestionSession {
+
+	@Id
+	@Column(name = "chat_id")
+	private Long chatId;
+
+	@Column(name = "question_ids", nullable = false)
+	private byte[] questionIds;
+
+	@Column(name = "scores", nullable = false)
+	private byte[] scores;
+
+	@Column(name = "current_index", nullable = false)
+	private int currentIndex;
+
+	@Column(name = "questions_per_session", nullable = false)
+	private int questionsPerSession;
+
+	@Column(name = "updated_at", nullable = false)
+	private Instant updatedAt;
+
+	protected PersistedQuestionSession() {
+	}
+
+	public PersistedQuestionSession(Long chatId, byte[] questionIds, byte[] scores, int currentIndex,
+			int questionsPerSession, Instant updatedAt) {
+		this.chatId = chatId;
+		this.questionIds = questionIds;
+		this.scores = scores;
+		this.currentIndex = currentIndex;
+		this.questionsPerSession = questionsPerSession;
+		this.updatedAt = updatedAt;
+	}
+
+	public Long getChatId() {
+		return chatId;
+	}
+
+	public byte[] getQuestionIds() {
+		return questionIds;
+	}
+
+	public byte[] getScores() {
+		return scores;
+	}
+
+	public int getCurrentIndex() {
+		return currentIndex;
+	}
+
+	public int getQuestionsPerSession() {
+		return questionsPerSession;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+}
@@ -0,0 +1,46 @@
+package com.github.puhlikov.interviewbot.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Эталонный ответ на вопрос, сгенерированный моделью один раз и переиспользуемый для кнопки «Показать ответ».
+ */
+@Entity
+@Table(name = "question_answers")
+public class QuestionAnswer {
+
+	@Id
+	@Column(name = "question_id")
+	private Long questionId;
+
+	@Column(name = "answer_text", nullable = false, columnDefinition = "text")
+	private String answerText;
+
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt = Instant.now();
+
+	protected QuestionAnswer() {
+	}
+
+	public QuestionAnswer(Long questionId, String answerText) {
+		this.questionId = questionId;
+		this.answerText = answerText;
+	}
+
+	public Long getQuestionId() {
+		return questionId;
+	}
+
+	public String getAnswerText() {
+		return answerText;
+	}
+
+	public void setAnswerText(String answerText) {
+		this.answerText = answerText;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
@@ -1,66 +1,214 @@
 package com.github.puhlikov.interviewbot.model;
 
-import lombok.Getter;
-import lombok.Setter;
-
-import java.util.ArrayList;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Getter
-@Setter
+/**
+ * Сессия вопросов пользователя в компактном виде: id вопросов в long[], оценки в byte[].
+ * Тексты вопросов не хранятся - они берутся из общего кэша вопросов (QuestionService).
+ *
+ * <p>Переход к следующему вопросу выполняется на потоке обновлений, а оценки приходят из потоков
+ * Reactor, поэтому состояние меняется без блокировок через CAS:
+ * <ul>
+ *     <li>у каждого вопроса своя ячейка оценки, первая записанная оценка окончательная -
+ *     повторная или опоздавшая оценка не засчитывается дважды и не попадает в чужой вопрос;</li>
+ *     <li>переход возможен только с вопроса, по которому уже есть результат, поэтому повторное
+ *     нажатие "Следующий вопрос" не пропускает вопрос.</li>
+ * </ul>
+ */
 public class UserQuestionCache {
+
+    private static final long NO_QUESTION = -1L;
+    public static final int NOT_ADVANCED = -1;
+
+    // Состояния ячейки оценки; оценки 0..127 хранятся как есть
+    private static final byte PENDING = -1;
+    private static final byte UNSCORED = -2;
+
+    private static final VarHandle SCORES = MethodHandles.arrayElementVarHandle(byte[].class);
+
     private Long chatId;
-    private List<Question> questions;
-    private int currentIndex;
+    private final long[] questionIds;
+    private final byte[] scores;
+    private final AtomicInteger currentIndex = new AtomicInteger();
+    // Число оценок в старших 32 битах, сумма в младших: среднее всегда читается согласованно
+    private final AtomicLong scoreTotals = new AtomicLong();
     private int questionsPerSession;
-    private String sessionId; // Уникальный идентификатор сессии
-    private List<Integer> scores; // Список оценок для текущей сессии
+    private volatile long questionShownAtMillis = System.currentTimeMillis();
 
-    public UserQuestionCache(Long chatId, List<Question> questions, int questionsPerSession) {
+    public UserQuestionCache(Long chatId, long[] questionIds, int questionsPerSession) {
         this.chatId = chatId;
-        this.questions = questions;
-        this.currentIndex = 0;
+        this.questionIds = questionIds;
         this.questionsPerSession = questionsPerSession;
-        this.sessionId = UUID.randomUUID().toString(); // Генерируем уникальный ID сессии
-        this.scores = new ArrayList<>();
+        this.scores = new byte[questionIds.length];
+        Arrays.fill(scores, PENDING);
+    }
+
+    public UserQuestionCache(Long chatId, List<Question> questions, int questionsPerSession) {
+        this(chatId, questions.stream().mapToLong(Question::getId).toArray(), questionsPerSession);
+    }
+
+    /**
+     * Восстанавливает сохраненную сессию вместе с прогрессом и оценками.
+     */
+    public static UserQuestionCache restore(Long chatId, long[] questionIds, byte[] scores,
+                                            int currentIndex, int questionsPerSession) {
+        var cache = new UserQuestionCache(chatId, questionIds, questionsPerSession);
+        int count = 0;
+        int sum = 0;
+        for (int i = 0; i < cache.scores.length && i < scores.length; i++) {
+            cache.scores[i] = scores[i];
+            if (scores[i] >= 0) {
+                count++;
+                sum += scores[i];
+            }
+        }
+        cache.scoreTotals.set(((long) count << 32) + sum);
+        cache.currentIndex.set(currentIndex);
+        return cache;
     }
 
     public boolean hasNext() {
         // Проверяем, есть ли еще вопросы после текущего
-        // Если currentIndex уже на последнем вопросе (questions.size() - 1), то следующего нет
-        return currentIndex < questions.size() - 1;
+        // Если currentIndex уже на последнем вопросе (questionIds.length - 1), то следующего нет
+        return currentIndex.get() < questionIds.length - 1;
     }
-    
+
     public boolean isLastQuestion() {
         // Проверяем, является ли текущий вопрос последним
-        return currentIndex == questions.size() - 1;
+        return currentIndex.get() == questionIds.length - 1;
     }
-    
+
     public int getTotalQuestions() {
-        return questions != null ? questions.size() : 0;
+        return questionIds.length;
+    }
+
+    /**
+     * @return id текущего вопроса или -1, если вопросы закончились
+     */
+    public long getCurrentQuestionId() {
+        return getQuestionId(currentIndex.get());
+    }
+
+    /**
+     * @return id вопроса с номером {@code index} или -1, если такого нет
+     */
+    public long getQuestionId(int index) {
+        return index >= 0 && index < questionIds.length ? questionIds[index] : NO_QUESTION;
     }
 
-    public Question getCurrentQuestion() {
-        if (currentIndex < questions.size()) {
-            return questions.get(currentIndex);
+    public long[] getQuestionIds() {
+        return questionIds.clone();
+    }
+
+    /**
+     * @return копия ячеек оценок: оценка 0..127 или отрицательное значение, если оценки нет
+     */
+    public byte[] getScores() {
+        byte[] copy = new byte[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            copy[i] = (byte) SCORES.getVolatile(scores, i);
         }
-        return null;
+        return copy;
     }
 
-    public Question getNextQuestion() {
-        currentIndex++;
-        return getCurrentQuestion();
+    public static boolean isQuestion(long questionId) {
+        return questionId != NO_QUESTION;
     }
 
-    public void addScore(Integer score) {
-        this.scores.add(score);
+    /**
+     * Переходит к следующему вопросу, если по текущему уже есть результат.
+     *
+     * @return номер нового текущего вопроса (равен числу вопросов, если они закончились)
+     *         или {@link #NOT_ADVANCED}, если переход не выполнен
+     */
+    public int moveToNextQuestion() {
+        while (true) {
+            int index = currentIndex.get();
+            if (index >= questionIds.length || (byte) SCORES.getVolatile(scores, index) == PENDING) {
+                return NOT_ADVANCED;
+            }
+            if (currentIndex.compareAndSet(index, index + 1)) {
+                questionShownAtMillis = System.currentTimeMillis();
+                return index + 1;
+            }
+        }
     }
 
-    public double getAverageScore() {
-        if (scores.isEmpty()) {
-            return 0.0;
+    /**
+     * Записывает оценку вопроса с номером {@code questionIndex}.
+     *
+     * @return false, если вопрос уже оценен или номера нет в сессии
+     */
+    public boolean recordScore(int questionIndex, int score) {
+        if (questionIndex < 0 || questionIndex >= scores.length) {
+            return false;
+        }
+        byte value = (byte) Math.max(0, Math.min(score, Byte.MAX_VALUE));
+        while (true) {
+            byte current = (byte) SCORES.getVolatile(scores, questionIndex);
+            if (current >= 0) {
+                return false;
+            }
+            if (SCORES.compareAndSet(scores, questionIndex, current, value)) {
+                scoreTotals.addAndGet((1L << 32) + value);
+                return true;
+            }
         }
-        return scores.stream().mapToInt(Integer::intValue).average().orElse(0.0);
+    }
+
+    /**
+     * Отмечает, что оценить ответ не удалось: переход дальше разрешен, но вопрос можно
+     * оценить повторно, пока пользователь на нем.
+     */
+    public void markUnscored(int questionIndex) {
+        if (questionIndex >= 0 && questionIndex < scores.length) {
+            SCORES.compareAndSet(scores, questionIndex, PENDING, UNSCORED);
+        }
+    }
+
+    /**
+     * @return сколько миллисекунд прошло с показа текущего вопроса
+     */
+    public long millisSinceQuestionShown() {
+        return Math.max(0L, System.currentTimeMillis() - questionShownAtMillis);
+    }
+
+    public int getAnsweredCount() {
+        return (int) (scoreTotals.get() >>> 32);
+    }
+
+    public double getAverageScore() {
+        long totals = scoreTotals.get();
+        int count = (int) (totals >>> 32);
+        return count == 0 ? 0.0 : (double) (int) totals / count;
+    }
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public int getCurrentIndex() {
+        return currentIndex.get();
+    }
+
+    public void setCurrentIndex(int currentIndex) {
+        this.currentIndex.set(currentIndex);
+    }
+
+    public int getQuestionsPerSession() {
+        return questionsPerSession;
+    }
+
+    public void setQuestionsPerSession(int questionsPerSession) {
+        this.questionsPerSession = questionsPerSession;
     }
 }
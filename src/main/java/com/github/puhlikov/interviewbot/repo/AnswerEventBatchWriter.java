@@ -0,0 +1,13 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.AnswerEvent;
+
+import java.util.List;
+
+/**
+ * Пакетная вставка событий одним JDBC batch: с IDENTITY-ключом Hibernate не объединяет INSERT в пакеты.
+ */
+public interface AnswerEventBatchWriter {
+
+	void insertAll(List<AnswerEvent> events);
+}
@@ -0,0 +1,31 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.AnswerEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+class AnswerEventBatchWriterImpl implements AnswerEventBatchWriter {
+
+	private static final String INSERT = "INSERT INTO answer_events " +
+			"(chat_id, question_id, score, latency_ms, revealed, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	AnswerEventBatchWriterImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void insertAll(List<AnswerEvent> events) {
+		jdbcTemplate.batchUpdate(INSERT, events, events.size(), (ps, event) -> {
+			ps.setLong(1, event.getChatId());
+			ps.setLong(2, event.getQuestionId());
+			ps.setShort(3, (short) event.getScore());
+			ps.setLong(4, event.getLatencyMs());
+			ps.setBoolean(5, event.isRevealed());
+			ps.setTimestamp(6, Timestamp.from(event.getCreatedAt()));
+		});
+	}
+}
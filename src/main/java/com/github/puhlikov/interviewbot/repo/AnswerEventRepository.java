@@ -0,0 +1,7 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.AnswerEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AnswerEventRepository extends JpaRepository<AnswerEvent, Long>, AnswerEventBatchWriter {
+}
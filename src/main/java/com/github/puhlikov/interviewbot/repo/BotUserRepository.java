@@ -1,12 +1,122 @@
 package com.github.puhlikov.interviewbot.repo;
 
+import com.github.puhlikov.interviewbot.enums.RegistrationState;
 import com.github.puhlikov.interviewbot.model.BotUser;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface BotUserRepository extends JpaRepository<BotUser, Long> {
 	Optional<BotUser> findByChatId(Long chatId);
-}
 
+	/**
+	 * Захватывает наступившие уведомления по индексу next_notification_at.
+	 * Строки блокируются до конца транзакции, а заблокированные другим экземпляром пропускаются,
+	 * поэтому параллельные экземпляры приложения получают непересекающиеся пачки.
+	 */
+	@Query(value = "SELECT * FROM users WHERE next_notification_at <= :dueBy " +
+			"ORDER BY next_notification_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+	List<BotUser> claimDueForNotification(@Param("dueBy") Instant dueBy, @Param("limit") int limit);
+
+	/**
+	 * Пользователи с настроенным временем уведомления, для которых момент еще не рассчитан.
+	 */
+	@Query("SELECT u FROM BotUser u WHERE u.nextNotificationAt IS NULL AND u.scheduleTime IS NOT NULL " +
+			"AND u.registrationState = :state AND u.id > :afterId ORDER BY u.id")
+	List<BotUser> findUnscheduled(@Param("state") RegistrationState state, @Param("afterId") long afterId,
+			Pageable pageable);
+
+	// Точечные изменения: одна инструкция UPDATE меняет только свои колонки и возвращает число строк.
+	// Изменения, влияющие на расписание, записывают и next_notification_at, рассчитанный по значениям,
+	// прочитанным ранее (expected*); условие SCHEDULE_UNCHANGED проверяет, что они не изменились,
+	// иначе обновляется 0 строк и изменение повторяется по свежим данным.
+	// 0 строк также означает, что пользователя уже нет
+
+	String SCHEDULE_UNCHANGED = " AND (u.scheduleTime = :expectedScheduleTime " +
+			"OR (u.scheduleTime IS NULL AND :expectedScheduleTime IS NULL)) " +
+			"AND (u.timezone = :expectedTimezone OR (u.timezone IS NULL AND :expectedTimezone IS NULL)) " +
+			"AND (u.registrationState = :expectedState OR (u.registrationState IS NULL AND :expectedState IS NULL)) " +
+			"AND (u.nextNotificationAt = :expectedNext OR (u.nextNotificationAt IS NULL AND :expectedNext IS NULL))";
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.registrationState = :state, u.nextNotificationAt = :next " +
+			"WHERE u.chatId = :chatId" + SCHEDULE_UNCHANGED)
+	int updateRegistrationState(@Param("chatId") Long chatId, @Param("state") RegistrationState state,
+			@Param("next") Instant next,
+			@Param("expectedScheduleTime") LocalTime expectedScheduleTime,
+			@Param("expectedTimezone") String expectedTimezone,
+			@Param("expectedState") RegistrationState expectedState,
+			@Param("expectedNext") Instant expectedNext);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.firstName = :firstName, u.registrationState = :state, " +
+			"u.nextNotificationAt = :next WHERE u.chatId = :chatId" + SCHEDULE_UNCHANGED)
+	int updateFirstName(@Param("chatId") Long chatId, @Param("firstName") String firstName,
+			@Param("state") RegistrationState state, @Param("next") Instant next,
+			@Param("expectedScheduleTime") LocalTime expectedScheduleTime,
+			@Param("expectedTimezone") String expectedTimezone,
+			@Param("expectedState") RegistrationState expectedState,
+			@Param("expectedNext") Instant expectedNext);
 
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.lastName = :lastName, u.registrationState = :state, " +
+			"u.nextNotificationAt = :next WHERE u.chatId = :chatId" + SCHEDULE_UNCHANGED)
+	int updateLastName(@Param("chatId") Long chatId, @Param("lastName") String lastName,
+			@Param("state") RegistrationState state, @Param("next") Instant next,
+			@Param("expectedScheduleTime") LocalTime expectedScheduleTime,
+			@Param("expectedTimezone") String expectedTimezone,
+			@Param("expectedState") RegistrationState expectedState,
+			@Param("expectedNext") Instant expectedNext);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.username = :username, u.registrationState = :state, " +
+			"u.nextNotificationAt = :next WHERE u.chatId = :chatId" + SCHEDULE_UNCHANGED)
+	int updateUsername(@Param("chatId") Long chatId, @Param("username") String username,
+			@Param("state") RegistrationState state, @Param("next") Instant next,
+			@Param("expectedScheduleTime") LocalTime expectedScheduleTime,
+			@Param("expectedTimezone") String expectedTimezone,
+			@Param("expectedState") RegistrationState expectedState,
+			@Param("expectedNext") Instant expectedNext);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.scheduleTime = :scheduleTime, u.registrationState = :state, " +
+			"u.nextNotificationAt = :next WHERE u.chatId = :chatId" + SCHEDULE_UNCHANGED)
+	int updateSchedule(@Param("chatId") Long chatId, @Param("scheduleTime") LocalTime scheduleTime,
+			@Param("state") RegistrationState state, @Param("next") Instant next,
+			@Param("expectedScheduleTime") LocalTime expectedScheduleTime,
+			@Param("expectedTimezone") String expectedTimezone,
+			@Param("expectedState") RegistrationState expectedState,
+			@Param("expectedNext") Instant expectedNext);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.timezone = :timezone, u.registrationState = :state, " +
+			"u.questionsPerSession = :questionsPerSession, u.nextNotificationAt = :next " +
+			"WHERE u.chatId = :chatId" + SCHEDULE_UNCHANGED)
+	int updateTimezone(@Param("chatId") Long chatId, @Param("timezone") String timezone,
+			@Param("state") RegistrationState state, @Param("questionsPerSession") Integer questionsPerSession,
+			@Param("next") Instant next,
+			@Param("expectedScheduleTime") LocalTime expectedScheduleTime,
+			@Param("expectedTimezone") String expectedTimezone,
+			@Param("expectedState") RegistrationState expectedState,
+			@Param("expectedNext") Instant expectedNext);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE BotUser u SET u.questionsPerSession = :questionsPerSession WHERE u.chatId = :chatId")
+	int updateQuestionsPerSession(@Param("chatId") Long chatId,
+			@Param("questionsPerSession") Integer questionsPerSession);
+}
@@ -0,0 +1,7 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.QuestionAnswer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface QuestionAnswerRepository extends JpaRepository<QuestionAnswer, Long> {
+}
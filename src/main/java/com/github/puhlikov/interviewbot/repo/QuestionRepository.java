@@ -1,6 +1,7 @@
 package com.github.puhlikov.interviewbot.repo;
 
 import com.github.puhlikov.interviewbot.model.Question;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,6 +10,20 @@ import java.util.List;
 
 public interface QuestionRepository extends JpaRepository<Question, Long> {
 
-	@Query(value = "SELECT * FROM questions WHERE is_active = true ORDER BY random() LIMIT :limit", nativeQuery = true)
-	List<Question> findRandomActive(@Param("limit") int limit);
+	/**
+	 * Постраничное чтение id активных вопросов по первичному ключу (keyset pagination).
+	 */
+	@Query("SELECT q.id FROM Question q WHERE q.isActive = true AND q.id > :afterId ORDER BY q.id")
+	List<Long> findActiveIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+	@Query("SELECT q.questionText FROM Question q WHERE q.isActive = true")
+	List<String> findActiveQuestionTexts();
+
+	/**
+	 * Активные вопросы без эталонного ответа с id больше {@code afterId}, по возрастанию id.
+	 */
+	@Query(value = "SELECT q.* FROM questions q WHERE q.is_active = true AND q.id > :afterId " +
+			"AND NOT EXISTS (SELECT 1 FROM question_answers a WHERE a.question_id = q.id) " +
+			"ORDER BY q.id LIMIT :limit", nativeQuery = true)
+	List<Question> findActiveWithoutAnswer(@Param("afterId") long afterId, @Param("limit") int limit);
 }
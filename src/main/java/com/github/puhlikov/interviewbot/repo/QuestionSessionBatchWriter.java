@@ -0,0 +1,13 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.PersistedQuestionSession;
+
+import java.util.List;
+
+/**
+ * Пакетная запись сессий одним JDBC batch: merge из JPA читал бы каждую строку перед вставкой.
+ */
+public interface QuestionSessionBatchWriter {
+
+	void upsertAll(List<PersistedQuestionSession> sessions);
+}
@@ -0,0 +1,35 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.PersistedQuestionSession;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+class QuestionSessionBatchWriterImpl implements QuestionSessionBatchWriter {
+
+	private static final String UPSERT = "INSERT INTO question_sessions " +
+			"(chat_id, question_ids, scores, current_index, questions_per_session, updated_at) " +
+			"VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (chat_id) DO UPDATE SET " +
+			"question_ids = EXCLUDED.question_ids, scores = EXCLUDED.scores, " +
+			"current_index = EXCLUDED.current_index, questions_per_session = EXCLUDED.questions_per_session, " +
+			"updated_at = EXCLUDED.updated_at";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	QuestionSessionBatchWriterImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void upsertAll(List<PersistedQuestionSession> sessions) {
+		jdbcTemplate.batchUpdate(UPSERT, sessions, sessions.size(), (ps, session) -> {
+			ps.setLong(1, session.getChatId());
+			ps.setBytes(2, session.getQuestionIds());
+			ps.setBytes(3, session.getScores());
+			ps.setInt(4, session.getCurrentIndex());
+			ps.setInt(5, session.getQuestionsPerSession());
+			ps.setTimestamp(6, Timestamp.from(session.getUpdatedAt()));
+		});
+	}
+}
@@ -0,0 +1,19 @@
+package com.github.puhlikov.interviewbot.repo;
+
+import com.github.puhlikov.interviewbot.model.PersistedQuestionSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface QuestionSessionRepository extends JpaRepository<PersistedQuestionSession, Long>,
+		QuestionSessionBatchWriter {
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM PersistedQuestionSession s WHERE s.updatedAt < :before")
+	int deleteUpdatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,86 @@
+package com.github.puhlikov.interviewbot.schedule;
+
+import com.github.puhlikov.interviewbot.model.Question;
+import com.github.puhlikov.interviewbot.repo.QuestionRepository;
+import com.github.puhlikov.interviewbot.service.ReferenceAnswerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Фоновая генерация эталонных ответов для активных вопросов, у которых их еще нет.
+ * Вопросы обрабатываются по одному, чтобы не конкурировать с запросами пользователей за API.
+ * Выборка продолжается с id, на котором остановился прошлый запуск, и после конца списка начинается
+ * сначала: неудачная генерация ничего не сохраняет, и без этого каждый запуск снова брал бы
+ * одни и те же первые вопросы, а остальные не доходили бы до очереди.
+ */
+@Component
+@ConditionalOnProperty(name = "bot.answers.pregeneration.enabled", havingValue = "true", matchIfMissing = true)
+public class AnswerPregenerationJob {
+
+	private static final Logger logger = LoggerFactory.getLogger(AnswerPregenerationJob.class);
+
+	private final QuestionRepository questions;
+	private final ReferenceAnswerService referenceAnswerService;
+	private final int batchSize;
+	private final AtomicBoolean running = new AtomicBoolean();
+	// id последнего взятого вопроса; 0 - начать сначала
+	private volatile long lastQuestionId;
+
+	public AnswerPregenerationJob(
+			QuestionRepository questions,
+			ReferenceAnswerService referenceAnswerService,
+			@Value("${bot.answers.pregeneration.batch-size:5}") int batchSize
+	) {
+		this.questions = questions;
+		this.referenceAnswerService = referenceAnswerService;
+		this.batchSize = batchSize;
+	}
+
+	@Scheduled(initialDelayString = "${bot.answers.pregeneration.interval-ms:300000}",
+			fixedDelayString = "${bot.answers.pregeneration.interval-ms:300000}")
+	public void pregenerate() {
+		// Генерация асинхронная: поток планировщика общий с рассылкой уведомлений и не должен ждать API
+		if (!running.compareAndSet(false, true)) {
+			return;
+		}
+		List<Question> batch;
+		try {
+			batch = nextBatch();
+		} catch (Exception e) {
+			running.set(false);
+			logger.warn("Failed to load questions without reference answer: {}", e.getMessage());
+			return;
+		}
+		if (batch.isEmpty()) {
+			running.set(false);
+			return;
+		}
+
+		logger.info("Pre-generating reference answers for {} questions", batch.size());
+		Flux.fromIterable(batch)
+				.concatMap(referenceAnswerService::generate)
+				.doFinally(signal -> running.set(false))
+				.subscribe(
+						answer -> { },
+						error -> logger.warn("Reference answer pre-generation failed: {}", error.getMessage()));
+	}
+
+	private List<Question> nextBatch() {
+		List<Question> batch = questions.findActiveWithoutAnswer(lastQuestionId, batchSize);
+		if (batch.isEmpty() && lastQuestionId > 0) {
+			// Дошли до конца списка - начинаем сначала
+			batch = questions.findActiveWithoutAnswer(0, batchSize);
+		}
+		// Неполная пачка - это конец списка, следующий запуск начнет сначала
+		lastQuestionId = batch.size() < batchSize ? 0 : batch.get(batch.size() - 1).getId();
+		return batch;
+	}
+}
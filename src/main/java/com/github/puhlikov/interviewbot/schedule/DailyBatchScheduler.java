@@ -4,48 +4,138 @@ import com.github.puhlikov.interviewbot.bot.InterviewTelegramBot;
 import com.github.puhlikov.interviewbot.enums.RegistrationState;
 import com.github.puhlikov.interviewbot.model.BotUser;
 import com.github.puhlikov.interviewbot.repo.BotUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalTime;
-import java.time.ZoneId;
+import java.time.Instant;
 import java.util.List;
 
+/**
+ * Ежедневные уведомления. Момент следующего уведомления хранится в users.next_notification_at (UTC),
+ * поэтому каждую минуту читаются только пользователи, чье время наступило, а не вся таблица.
+ * Безопасен при нескольких экземплярах приложения: пачки захватываются через FOR UPDATE SKIP LOCKED.
+ */
 @Component
 public class DailyBatchScheduler {
 
+	private static final Logger logger = LoggerFactory.getLogger(DailyBatchScheduler.class);
+
 	private final BotUserRepository users;
 	private final InterviewTelegramBot bot;
+	private final TransactionTemplate transactionTemplate;
+	private final int pageSize;
+	private final int maxBatchesPerTick;
 
-	public DailyBatchScheduler(BotUserRepository users, InterviewTelegramBot bot) {
+	public DailyBatchScheduler(
+			BotUserRepository users,
+			InterviewTelegramBot bot,
+			TransactionTemplate transactionTemplate,
+			@Value("${bot.notifications.page-size:500}") int pageSize,
+			@Value("${bot.notifications.max-batches-per-tick:20}") int maxBatchesPerTick
+	) {
 		this.users = users;
 		this.bot = bot;
+		this.transactionTemplate = transactionTemplate;
+		this.pageSize = pageSize;
+		this.maxBatchesPerTick = maxBatchesPerTick;
 	}
 
 	@Scheduled(cron = "0 * * * * *")
 	public void sendDailyNotifications() {
-		List<BotUser> allUsers = users.findAll();
+		sendDueNotifications(Instant.now());
+	}
 
-		for (BotUser user : allUsers) {
-			if (user.getRegistrationState() == RegistrationState.COMPLETED &&
-					user.getScheduleTime() != null) {
+	/**
+	 * Отправляет все уведомления, наступившие к {@code now}, начиная с самых ранних, поэтому
+	 * минуты, пропущенные из-за простоя или паузы, не теряются. Выборка накопительная
+	 * (next_notification_at &lt;= now), поэтому пропущенный период не перебирается по минутам.
+	 * За один запуск обрабатывается не больше {@code maxBatchesPerTick} пачек: после долгого простоя
+	 * нагрузка распределяется по нескольким запускам. Отдельная отметка прогресса не нужна:
+	 * неразобранные уведомления остаются в выборке до следующего запуска.
+	 *
+	 * <p>Пачка захватывается и переносится на следующий день в одной транзакции, после фиксации
+	 * отправляются сообщения. Перенесенные пользователи выпадают из выборки, а захваченные другим
+	 * экземпляром пропускаются, поэтому всегда читается первая пачка.
+	 */
+	void sendDueNotifications(Instant now) {
+		int batches = 0;
+		int sent = 0;
+		while (batches < maxBatchesPerTick) {
+			List<BotUser> page = transactionTemplate.execute(status -> rescheduleDuePage(now));
+			if (!page.isEmpty()) {
+				batches++;
+				sent += send(page);
+			}
+			if (page.size() < pageSize) {
+				break;
+			}
+		}
+		if (batches == maxBatchesPerTick) {
+			logger.info("Notification batch limit reached, remaining notifications are sent on next run");
+		}
 
-				try {
-					ZoneId zone = ZoneId.of(user.getTimezone());
-					LocalTime nowInUserZone = LocalTime.now(zone);
+		if (sent > 0) {
+			logger.info("Sent {} daily notifications", sent);
+		}
+	}
 
-					if (nowInUserZone.getHour() == user.getScheduleTime().getHour() &&
-							nowInUserZone.getMinute() == user.getScheduleTime().getMinute()) {
+	private List<BotUser> rescheduleDuePage(Instant now) {
+		List<BotUser> due = users.claimDueForNotification(now, pageSize);
+		// Изменения сбрасываются одним пакетом UPDATE при фиксации транзакции
+		due.forEach(user -> user.setNextNotificationAt(NotificationTimes.nextAfter(user, now)));
+		return due;
+	}
 
-						bot.sendDailyNotification(user.getChatId());
-					}
-				} catch (Exception e) {
-					System.err.println("Error sending notification to user " + user.getChatId() + ": " + e.getMessage());
-				}
+	private int send(List<BotUser> page) {
+		int sent = 0;
+		for (BotUser user : page) {
+			if (user.getNextNotificationAt() == null) {
+				continue;
+			}
+			try {
+				bot.sendDailyNotification(user.getChatId());
+				sent++;
+			} catch (Exception e) {
+				logger.warn("Error sending notification to user {}: {}", user.getChatId(), e.getMessage());
 			}
 		}
+		return sent;
 	}
-}
 
+	/**
+	 * Рассчитывает next_notification_at для пользователей, настроивших время до появления колонки.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void scheduleUnscheduledUsers() {
+		Instant now = Instant.now();
+		long lastId = 0L;
+		int scheduled = 0;
+		List<BotUser> page;
+		do {
+			long afterId = lastId;
+			page = transactionTemplate.execute(status -> {
+				List<BotUser> batch = users.findUnscheduled(RegistrationState.COMPLETED, afterId,
+						PageRequest.ofSize(pageSize));
+				batch.forEach(user -> user.setNextNotificationAt(NotificationTimes.nextAfter(user, now)));
+				return batch;
+			});
+			for (BotUser user : page) {
+				lastId = user.getId();
+				if (user.getNextNotificationAt() != null) {
+					scheduled++;
+				}
+			}
+		} while (page.size() == pageSize);
 
+		if (scheduled > 0) {
+			logger.info("Scheduled daily notifications for {} users", scheduled);
+		}
+	}
+}
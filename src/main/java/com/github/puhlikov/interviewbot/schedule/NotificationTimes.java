@@ -0,0 +1,52 @@
+package com.github.puhlikov.interviewbot.schedule;
+
+import com.github.puhlikov.interviewbot.enums.RegistrationState;
+import com.github.puhlikov.interviewbot.model.BotUser;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Расчет момента следующего ежедневного уведомления.
+ * Время считается от локальной даты пользователя, поэтому переходы на летнее/зимнее время
+ * не сдвигают уведомление: несуществующее время (весенний переход) переносится вперед на длину разрыва,
+ * повторяющееся (осенний переход) срабатывает один раз - по более раннему смещению.
+ */
+public final class NotificationTimes {
+
+	private NotificationTimes() {
+	}
+
+	/**
+	 * @return первый момент строго после {@code after}, когда на часах в {@code zone} будет {@code time}
+	 */
+	public static Instant nextAfter(LocalTime time, ZoneId zone, Instant after) {
+		LocalDate date = after.atZone(zone).toLocalDate();
+		Instant candidate = ZonedDateTime.of(date, time, zone).toInstant();
+		if (!candidate.isAfter(after)) {
+			candidate = ZonedDateTime.of(date.plusDays(1), time, zone).toInstant();
+		}
+		return candidate;
+	}
+
+	/**
+	 * @return следующее уведомление пользователя или null, если уведомления ему не положены
+	 */
+	public static Instant nextAfter(BotUser user, Instant after) {
+		if (user.getRegistrationState() != RegistrationState.COMPLETED
+				|| user.getScheduleTime() == null
+				|| user.getTimezone() == null) {
+			return null;
+		}
+		try {
+			return nextAfter(user.getScheduleTime(), ZoneId.of(user.getTimezone()), after);
+		} catch (DateTimeException e) {
+			// Некорректный часовой пояс - уведомления не планируем
+			return null;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.model.AnswerEvent;
+import com.github.puhlikov.interviewbot.repo.AnswerEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * История ответов в answer_events. События складываются в ограниченный буфер в памяти и вставляются
+ * пачками по таймеру, поэтому запись истории не добавляет обращений к базе при обработке сообщений.
+ * При переполненном буфере событие отбрасывается: история не должна тормозить бота.
+ */
+@Service
+public class AnswerHistoryRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerHistoryRecorder.class);
+
+    private final AnswerEventRepository repository;
+    private final BlockingQueue<AnswerEvent> buffer;
+    private final int batchSize;
+    private final Counter dropped;
+
+    public AnswerHistoryRecorder(
+            AnswerEventRepository repository,
+            @Value("${bot.history.buffer-size:10000}") int bufferSize,
+            @Value("${bot.history.batch-size:500}") int batchSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.batchSize = batchSize;
+        this.dropped = Counter.builder("bot.history.dropped")
+                .description("Answer events dropped because the write buffer was full")
+                .register(meterRegistry);
+    }
+
+    public void record(Long chatId, long questionId, int score, long latencyMs, boolean revealed) {
+        var event = new AnswerEvent(chatId, questionId, score, latencyMs, revealed, Instant.now());
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.history.flush-ms:5000}")
+    public synchronized void flush() {
+        List<AnswerEvent> batch = new ArrayList<>(Math.min(buffer.size(), batchSize));
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            try {
+                repository.insertAll(batch);
+            } catch (Exception e) {
+                // Не возвращаем пачку в буфер: при недоступной базе он бы только переполнялся
+                logger.warn("Failed to write {} answer events: {}", batch.size(), e.getMessage());
+                dropped.increment(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    int buffered() {
+        return buffer.size();
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.enums.SettingsState;
+import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+/**
+ * Состояние диалога одного чата: сессия вопросов, черновик добавляемого вопроса, режим настроек.
+ * Обновления одного чата выполняются последовательно, но читаться могут из потоков Reactor, поэтому поля volatile.
+ */
+public class ChatState {
+
+    private volatile UserQuestionCache questionSession;
+    private volatile QuestionSessionService.QuestionSession questionDraft;
+    private volatile SettingsState settingsState = SettingsState.NONE;
+    private volatile boolean awaitingText;
+    // Подписки на ответы модели, результат которых еще не отправлен в чат
+    private volatile Disposable.Composite pendingRequests = Disposables.composite();
+
+    public UserQuestionCache getQuestionSession() {
+        return questionSession;
+    }
+
+    public void setQuestionSession(UserQuestionCache questionSession) {
+        this.questionSession = questionSession;
+    }
+
+    public QuestionSessionService.QuestionSession getQuestionDraft() {
+        return questionDraft;
+    }
+
+    public void setQuestionDraft(QuestionSessionService.QuestionSession questionDraft) {
+        this.questionDraft = questionDraft;
+    }
+
+    public SettingsState getSettingsState() {
+        return settingsState;
+    }
+
+    public void setSettingsState(SettingsState settingsState) {
+        this.settingsState = settingsState;
+    }
+
+    public boolean isAwaitingText() {
+        return awaitingText;
+    }
+
+    public void setAwaitingText(boolean awaitingText) {
+        this.awaitingText = awaitingText;
+    }
+
+    public void trackRequest(Disposable request) {
+        pendingRequests.add(request);
+    }
+
+    public void untrackRequest(Disposable request) {
+        pendingRequests.remove(request);
+    }
+
+    public int pendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Отменяет незавершенные запросы: соединения освобождаются, а устаревший ответ не попадет в чат.
+     *
+     * @return сколько запросов отменено
+     */
+    public int cancelPendingRequests() {
+        Disposable.Composite cancelled = pendingRequests;
+        pendingRequests = Disposables.composite();
+        int count = cancelled.size();
+        cancelled.dispose();
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return questionSession == null
+                && questionDraft == null
+                && settingsState == SettingsState.NONE
+                && !awaitingText
+                && pendingRequests.size() == 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.puhlikov.interviewbot.service;
+
+/**
+ * Состояние чата удалено из {@link ChatStateStore} по неактивности или из-за лимита размера,
+ * пока в нем оставалась незавершенная сессия вопросов.
+ */
+public record ChatStateEvictedEvent(Long chatId, ChatState state) {
+}
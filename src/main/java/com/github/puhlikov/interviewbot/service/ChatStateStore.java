@@ -0,0 +1,139 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Единое хранилище состояния диалогов: одна запись {@link ChatState} на чат.
+ * Записи удаляются после простоя и при превышении лимита, поэтому память не растет при долгой работе.
+ * Если удаляется незавершенная сессия вопросов, публикуется {@link ChatStateEvictedEvent};
+ * незавершенные запросы к модели удаленной записи отменяются.
+ */
+@Component
+public class ChatStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatStateStore.class);
+
+    private final Cache<Long, ChatState> states;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter cancelledRequests;
+
+    @Autowired
+    public ChatStateStore(
+            @Value("${bot.chat-state.idle-ttl-minutes:120}") long idleTtlMinutes,
+            @Value("${bot.chat-state.max-size:100000}") long maxSize,
+            MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this(Duration.ofMinutes(idleTtlMinutes), maxSize, meterRegistry, eventPublisher,
+                Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    ChatStateStore(Duration idleTtl, long maxSize, MeterRegistry meterRegistry,
+                   ApplicationEventPublisher eventPublisher, Ticker ticker, Executor executor) {
+        this.eventPublisher = eventPublisher;
+        this.cancelledRequests = Counter.builder("chat.state.requests.cancelled")
+                .description("LLM requests cancelled because the chat left the session or was evicted")
+                .register(meterRegistry);
+        this.states = Caffeine.newBuilder()
+                .expireAfterAccess(idleTtl)
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .executor(executor)
+                // Без планировщика просроченные записи удалялись бы только при обращениях к кэшу
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::onRemoval)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, states, "chat.state");
+        Gauge.builder("chat.state.question.sessions", this, ChatStateStore::countQuestionSessions)
+                .description("Chats with a question session in progress")
+                .register(meterRegistry);
+        Gauge.builder("chat.state.session.questions", this, ChatStateStore::countSessionQuestions)
+                .description("Questions held in memory by active sessions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return состояние чата или null, если его нет
+     */
+    public ChatState find(Long chatId) {
+        return states.getIfPresent(chatId);
+    }
+
+    public ChatState getOrCreate(Long chatId) {
+        return states.get(chatId, id -> new ChatState());
+    }
+
+    /**
+     * Удаляет запись, если в ней не осталось состояния.
+     */
+    public void removeIfEmpty(Long chatId) {
+        states.asMap().computeIfPresent(chatId, (id, state) -> state.isEmpty() ? null : state);
+    }
+
+    /**
+     * Отменяет незавершенные запросы к модели для чата (завершение или перезапуск сессии).
+     */
+    public void cancelPendingRequests(Long chatId) {
+        ChatState state = states.getIfPresent(chatId);
+        if (state != null) {
+            cancelledRequests.increment(state.cancelPendingRequests());
+        }
+    }
+
+    public long size() {
+        return states.estimatedSize();
+    }
+
+    void cleanUp() {
+        states.cleanUp();
+    }
+
+    private void onRemoval(Long chatId, ChatState state, RemovalCause cause) {
+        if (cause.wasEvicted() && state != null) {
+            cancelledRequests.increment(state.cancelPendingRequests());
+        }
+        if (!cause.wasEvicted() || chatId == null || state == null || state.getQuestionSession() == null) {
+            return;
+        }
+        logger.debug("Evicting abandoned question session for chatId {} ({})", chatId, cause);
+        try {
+            eventPublisher.publishEvent(new ChatStateEvictedEvent(chatId, state));
+        } catch (Exception e) {
+            logger.warn("Failed to finalize evicted session for chatId {}: {}", chatId, e.getMessage());
+        }
+    }
+
+    private double countQuestionSessions() {
+        return states.asMap().values().stream()
+                .filter(state -> state.getQuestionSession() != null)
+                .count();
+    }
+
+    private double countSessionQuestions() {
+        return states.asMap().values().stream()
+                .map(ChatState::getQuestionSession)
+                .filter(session -> session != null)
+                .mapToInt(session -> session.getTotalQuestions())
+                .sum();
+    }
+}
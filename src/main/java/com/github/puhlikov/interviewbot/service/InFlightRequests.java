@@ -0,0 +1,96 @@
+package com.github.puhlikov.interviewbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Реестр выполняющихся запросов к модели (single-flight): одинаковые запросы, пришедшие, пока первый
+ * еще выполняется, подписываются на него же и получают тот же результат вместо нового запроса.
+ * Запись удаляется по завершении запроса, поэтому результаты не кэшируются.
+ */
+@Component
+public class InFlightRequests {
+
+    private final ConcurrentHashMap<String, Object> inFlight = new ConcurrentHashMap<>();
+    private final Counter upstream;
+    private final Counter coalesced;
+
+    public InFlightRequests(MeterRegistry meterRegistry) {
+        this.upstream = requestCounter(meterRegistry, "upstream");
+        this.coalesced = requestCounter(meterRegistry, "coalesced");
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bot.llm.requests")
+                .description("LLM requests by whether they reached the API or joined an identical one in flight")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ключ запроса: хэш промпта без учета лишних пробелов.
+     */
+    public static String key(String kind, String prompt) {
+        String normalized = prompt.strip().replaceAll("\\s+", " ");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return kind + ':' + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Все подписчики получают один результат; запрос отменяется, только если отписались все.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> join(String key, Supplier<Mono<T>> request) {
+        return Mono.defer(() -> {
+            Mono<T>[] shared = new Mono[1];
+            shared[0] = Mono.defer(request)
+                    .doFinally(signal -> inFlight.remove(key, shared[0]))
+                    .share();
+            return (Mono<T>) register(key, shared[0]);
+        });
+    }
+
+    /**
+     * Для потока фрагментов: подписчик, подключившийся позже, сначала получает уже пришедшие фрагменты.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> joinStream(String key, Supplier<Flux<T>> request) {
+        return Flux.defer(() -> {
+            Flux<T>[] shared = new Flux[1];
+            shared[0] = Flux.defer(request)
+                    .doFinally(signal -> inFlight.remove(key, shared[0]))
+                    .replay()
+                    .refCount();
+            return (Flux<T>) register(key, shared[0]);
+        });
+    }
+
+    private Object register(String key, Object request) {
+        Object existing = inFlight.putIfAbsent(key, request);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        upstream.increment();
+        return request;
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+}
@@ -1,44 +1,354 @@
 package com.github.puhlikov.interviewbot.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Сервис для отправки сообщений в Telegram
+ * Сервис для отправки сообщений в Telegram.
+ * Отправка асинхронная: запросы ставятся в очередь чата и уходят с учетом лимитов Telegram
+ * (общий token bucket на бота и отдельный на каждый чат). Порядок сообщений внутри чата сохраняется,
+ * при ответе 429 запрос повторяется через указанный Telegram retry_after.
  */
 @Service
 public class MessageSender {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(MessageSender.class);
-    private TelegramLongPollingBot bot;
-    
-    public MessageSender() {
-        // Constructor for Spring
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long MIN_WAKEUP_NANOS = 1_000_000L;
+
+    private AbsSender bot;
+
+    private final double chatRate;
+    private final double chatBurst;
+    private final int maxPending;
+    private final int maxRetries;
+    private final TokenBucket globalBucket;
+    private final ConcurrentHashMap<Long, ChatQueue> chats = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService drainExecutor;
+    private final ExecutorService sendExecutor;
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt;
+    // Чат, которому не хватило общего токена; следующий обход начинается с него
+    private Long drainCursor;
+
+    private final Timer sendLatency;
+    private final Counter rateLimitedCounter;
+    private final Counter failedCounter;
+
+    public MessageSender(
+            @Value("${telegram.sender.global-rate:30}") double globalRate,
+            @Value("${telegram.sender.chat-rate:1}") double chatRate,
+            @Value("${telegram.sender.chat-burst:3}") double chatBurst,
+            @Value("${telegram.sender.threads:8}") int threads,
+            @Value("${telegram.sender.max-pending:10000}") int maxPending,
+            @Value("${telegram.sender.max-retries:3}") int maxRetries,
+            MeterRegistry meterRegistry
+    ) {
+        this.chatRate = chatRate;
+        this.chatBurst = chatBurst;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+        this.globalBucket = new TokenBucket(globalRate, globalRate, System.nanoTime());
+        this.drainExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("message-sender-drain"));
+        this.sendExecutor = Executors.newFixedThreadPool(threads, daemonThreads("message-sender"));
+
+        Gauge.builder("telegram.send.queue.depth", pending, AtomicInteger::get)
+                .description("Outgoing Telegram requests waiting to be sent")
+                .register(meterRegistry);
+        this.sendLatency = Timer.builder("telegram.send.latency")
+                .description("Time from enqueue to Telegram acknowledgement")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rateLimitedCounter = Counter.builder("telegram.send.rate_limited")
+                .description("Telegram 429 Too Many Requests responses")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("telegram.send.failed")
+                .description("Telegram requests that failed permanently")
+                .register(meterRegistry);
     }
-    
-    public void setBot(TelegramLongPollingBot bot) {
+
+    public void setBot(AbsSender bot) {
         this.bot = bot;
     }
-    
-    public void sendMessage(Long chatId, String text) {
-        sendMessage(chatId, text, null);
+
+    public CompletableFuture<Message> sendMessage(Long chatId, String text) {
+        return sendMessage(chatId, text, null);
+    }
+
+    public CompletableFuture<Message> sendMessage(Long chatId, String text, ReplyKeyboard replyMarkup) {
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId.toString())
+                .text(text)
+                .replyMarkup(replyMarkup)
+                .build();
+        return submit(chatId, message);
+    }
+
+    /**
+     * Ставит произвольный метод Bot API в очередь чата.
+     * @return future с результатом вызова; при окончательной ошибке future завершается исключением
+     */
+    public <T extends Serializable> CompletableFuture<T> submit(Long chatId, BotApiMethod<T> method) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            failedCounter.increment();
+            logger.error("Outgoing queue is full, dropping message to chatId: {}", chatId);
+            future.completeExceptionally(new RejectedExecutionException("Outgoing message queue is full"));
+            return future;
+        }
+        PendingRequest<T> request = new PendingRequest<>(method, future, System.nanoTime());
+        chats.compute(chatId, (id, chat) -> {
+            ChatQueue queue = chat != null ? chat : new ChatQueue(id, new TokenBucket(chatRate, chatBurst, System.nanoTime()));
+            queue.add(request);
+            return queue;
+        });
+        requestDrain();
+        return future;
+    }
+
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+        sendExecutor.shutdown();
+        try {
+            if (!sendExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                sendExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sendExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (pending.get() > 0) {
+            logger.warn("Message sender stopped with {} unsent requests", pending.get());
+        }
+    }
+
+    private void requestDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                drainExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Выполняется только в потоке drainExecutor: выбирает чаты, которым разрешено отправить следующее сообщение.
+     * Обход начинается с чата, на котором прошлый обход остановился из-за общего лимита, иначе при рассылке
+     * чаты в начале порядка ConcurrentHashMap забирали бы все токены, а остальные ждали бы бесконечно.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        long now = System.nanoTime();
+        long nextWake = Long.MAX_VALUE;
+
+        List<ChatQueue> order = new ArrayList<>(chats.values());
+        int start = startIndex(order);
+        for (int i = 0; i < order.size(); i++) {
+            ChatQueue chat = order.get((start + i) % order.size());
+            if (chat.inFlight) {
+                continue;
+            }
+            if (chat.pausedUntil - now > 0) {
+                nextWake = Math.min(nextWake, chat.pausedUntil - now);
+                continue;
+            }
+            if (chat.isEmpty()) {
+                chats.computeIfPresent(chat.chatId, (id, c) -> c.isIdle(System.nanoTime()) ? null : c);
+                continue;
+            }
+            long chatWait = chat.bucket.nanosUntilToken(now);
+            if (chatWait > 0) {
+                nextWake = Math.min(nextWake, chatWait);
+                continue;
+            }
+            long globalWait = globalBucket.nanosUntilToken(now);
+            if (globalWait > 0) {
+                nextWake = Math.min(nextWake, globalWait);
+                drainCursor = chat.chatId;
+                break;
+            }
+            globalBucket.tryAcquire(now);
+            chat.bucket.tryAcquire(now);
+            PendingRequest<?> request = chat.poll();
+            chat.inFlight = true;
+            try {
+                sendExecutor.execute(() -> send(chat, request));
+            } catch (RejectedExecutionException e) {
+                chat.inFlight = false;
+                complete(request, null, e);
+            }
+        }
+
+        if (nextWake != Long.MAX_VALUE) {
+            scheduleWakeup(now + Math.max(nextWake, MIN_WAKEUP_NANOS));
+        }
+    }
+
+    private int startIndex(List<ChatQueue> order) {
+        if (drainCursor != null) {
+            for (int i = 0; i < order.size(); i++) {
+                if (drainCursor.equals(order.get(i).chatId)) {
+                    return i;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void scheduleWakeup(long at) {
+        // Держим не больше одного отложенного пробуждения: переносим его только на более раннее время
+        if (wakeup != null && !wakeup.isDone() && wakeupAt - at <= 0) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        try {
+            wakeupAt = at;
+            wakeup = drainExecutor.schedule(this::requestDrain, at - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            wakeup = null;
+        }
     }
-    
-    public void sendMessage(Long chatId, String text, ReplyKeyboard replyMarkup) {
+
+    private <T extends Serializable> void send(ChatQueue chat, PendingRequest<T> request) {
         try {
-            SendMessage message = SendMessage.builder()
-                    .chatId(chatId.toString())
-                    .text(text)
-                    .replyMarkup(replyMarkup)
-                    .build();
-            bot.execute(message);
+            if (bot == null) {
+                throw new IllegalStateException("Bot is not attached to MessageSender");
+            }
+            T result = bot.execute(request.method);
+            complete(request, result, null);
+        } catch (TelegramApiRequestException e) {
+            if (Integer.valueOf(TOO_MANY_REQUESTS).equals(e.getErrorCode())) {
+                rateLimitedCounter.increment();
+                int retryAfter = e.getParameters() != null && e.getParameters().getRetryAfter() != null
+                        ? e.getParameters().getRetryAfter()
+                        : 1;
+                if (request.attempts++ < maxRetries) {
+                    logger.warn("Telegram rate limit for chatId {}, retrying in {}s", chat.chatId, retryAfter);
+                    chat.pausedUntil = System.nanoTime() + retryAfter * NANOS_PER_SECOND;
+                    chat.addFirst(request);
+                    return;
+                }
+            }
+            logger.error("Failed to send message to chatId: {}", chat.chatId, e);
+            complete(request, null, e);
         } catch (Exception e) {
-            logger.error("Failed to send message to chatId: {}", chatId, e);
+            logger.error("Failed to send message to chatId: {}", chat.chatId, e);
+            complete(request, null, e);
+        } finally {
+            chat.inFlight = false;
+            requestDrain();
         }
     }
-}
 
+    private <T extends Serializable> void complete(PendingRequest<T> request, T result, Throwable error) {
+        pending.decrementAndGet();
+        sendLatency.record(System.nanoTime() - request.enqueuedAt, TimeUnit.NANOSECONDS);
+        if (error != null) {
+            failedCounter.increment();
+            request.future.completeExceptionally(error);
+        } else {
+            request.future.complete(result);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PendingRequest<T extends Serializable> {
+        private final BotApiMethod<T> method;
+        private final CompletableFuture<T> future;
+        private final long enqueuedAt;
+        private int attempts;
+
+        private PendingRequest(BotApiMethod<T> method, CompletableFuture<T> future, long enqueuedAt) {
+            this.method = method;
+            this.future = future;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class ChatQueue {
+        private final Long chatId;
+        private final TokenBucket bucket;
+        private final Deque<PendingRequest<?>> queue = new ArrayDeque<>();
+        private volatile boolean inFlight;
+        private volatile long pausedUntil;
+
+        private ChatQueue(Long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+            this.pausedUntil = System.nanoTime();
+        }
+
+        synchronized void add(PendingRequest<?> request) {
+            queue.addLast(request);
+        }
+
+        synchronized void addFirst(PendingRequest<?> request) {
+            queue.addFirst(request);
+        }
+
+        synchronized PendingRequest<?> poll() {
+            return queue.pollFirst();
+        }
+
+        synchronized boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        /**
+         * Очередь можно удалить без потери состояния: сообщений нет, запрос не выполняется и бакет полон.
+         */
+        synchronized boolean isIdle(long now) {
+            return queue.isEmpty() && !inFlight && pausedUntil - now <= 0 && bucket.isFull(now);
+        }
+    }
+}
@@ -1,62 +1,161 @@
 package com.github.puhlikov.interviewbot.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.puhlikov.interviewbot.model.Question;
 import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+/**
+ * Сессии вопросов пользователей. Сессия живет в {@link ChatStateStore}, а каждое изменение
+ * отмечается в {@link QuestionSessionStore}, поэтому прогресс переживает перезапуск приложения.
+ */
 @Service
 public class QuestionCacheService {
 
-    private final Map<Long, UserQuestionCache> userCache = new ConcurrentHashMap<>();
+    private final ChatStateStore chatStateStore;
     private final QuestionService questionService;
+    private final QuestionSessionStore sessionStore;
+    private final AnswerHistoryRecorder answerHistory;
+    // Чаты, для которых сохраненная сессия уже искалась в базе. Хранится отдельно от ChatState:
+    // пустое состояние чата удаляется, и без отметки каждое сообщение снова читало бы базу
+    private final Cache<Long, Boolean> checkedChats;
 
-    public QuestionCacheService(QuestionService questionService) {
+    public QuestionCacheService(ChatStateStore chatStateStore, QuestionService questionService,
+                                QuestionSessionStore sessionStore, AnswerHistoryRecorder answerHistory,
+                                @Value("${bot.chat-state.max-size:100000}") long maxCheckedChats) {
+        this.chatStateStore = chatStateStore;
         this.questionService = questionService;
+        this.sessionStore = sessionStore;
+        this.answerHistory = answerHistory;
+        this.checkedChats = Caffeine.newBuilder()
+                .maximumSize(maxCheckedChats)
+                .build();
     }
 
     public void initializeUserCache(Long chatId, int questionsCount) {
         var questions = questionService.getRandomQuestions(questionsCount);
         var cache = new UserQuestionCache(chatId, questions, questionsCount);
-        userCache.put(chatId, cache);
+        var state = chatStateStore.getOrCreate(chatId);
+        state.setQuestionSession(cache);
+        checkedChats.put(chatId, Boolean.TRUE);
+        markDirty(cache);
     }
 
+    /**
+     * При первом обращении к чату после запуска сессия загружается из базы. Повторно база читается,
+     * только если отметка о проверке вытеснена из памяти.
+     */
     public UserQuestionCache getUserCache(Long chatId) {
-        return userCache.get(chatId);
+        if (checkedChats.getIfPresent(chatId) == null) {
+            var restored = sessionStore.load(chatId);
+            if (restored != null) {
+                var state = chatStateStore.getOrCreate(chatId);
+                if (state.getQuestionSession() == null) {
+                    state.setQuestionSession(restored);
+                }
+            }
+            checkedChats.put(chatId, Boolean.TRUE);
+        }
+        var state = chatStateStore.find(chatId);
+        return state != null ? state.getQuestionSession() : null;
     }
 
     public Question getCurrentQuestion(Long chatId) {
-        var cache = userCache.get(chatId);
-        return cache != null ? cache.getCurrentQuestion() : null;
+        var cache = getUserCache(chatId);
+        return cache != null ? resolve(cache.getCurrentQuestionId()) : null;
     }
 
+    /**
+     * @return следующий вопрос или null, если вопросы закончились или переход не выполнен
+     * (по текущему вопросу еще нет результата)
+     */
     public Question getNextQuestion(Long chatId) {
-        var cache = userCache.get(chatId);
-        return cache != null ? cache.getNextQuestion() : null;
+        var cache = getUserCache(chatId);
+        if (cache == null) {
+            return null;
+        }
+        int index = moveToNextQuestion(cache);
+        return index != UserQuestionCache.NOT_ADVANCED ? resolve(cache.getQuestionId(index)) : null;
+    }
+
+    public int moveToNextQuestion(UserQuestionCache cache) {
+        int index = cache.moveToNextQuestion();
+        if (index != UserQuestionCache.NOT_ADVANCED) {
+            markDirty(cache);
+        }
+        return index;
+    }
+
+    /**
+     * Записывает оценку ответа в сессию и в историю ответов.
+     *
+     * @param latencyMs время от показа вопроса до ответа
+     * @param revealed  пользователь посмотрел эталонный ответ
+     * @return false, если вопрос уже оценен
+     */
+    public boolean recordAnswer(UserQuestionCache cache, int questionIndex, int score,
+                                long latencyMs, boolean revealed) {
+        boolean recorded = cache.recordScore(questionIndex, score);
+        if (recorded) {
+            markDirty(cache);
+            answerHistory.record(cache.getChatId(), cache.getQuestionId(questionIndex), score, latencyMs, revealed);
+        }
+        return recorded;
+    }
+
+    public void markUnscored(UserQuestionCache cache, int questionIndex) {
+        cache.markUnscored(questionIndex);
+        markDirty(cache);
+    }
+
+    private void markDirty(UserQuestionCache cache) {
+        sessionStore.markDirty(cache, () -> {
+            var state = chatStateStore.find(cache.getChatId());
+            return state != null ? state.getQuestionSession() : null;
+        });
+    }
+
+    private Question resolve(long questionId) {
+        if (!UserQuestionCache.isQuestion(questionId)) {
+            return null;
+        }
+        return questionService.getById(questionId).orElse(null);
     }
 
     public boolean hasNextQuestion(Long chatId) {
-        var cache = userCache.get(chatId);
+        var cache = getUserCache(chatId);
         return cache != null && cache.hasNext();
     }
     
     public boolean isLastQuestion(Long chatId) {
-        var cache = userCache.get(chatId);
+        var cache = getUserCache(chatId);
         return cache != null && cache.isLastQuestion();
     }
     
     public int getTotalQuestions(Long chatId) {
-        var cache = userCache.get(chatId);
+        var cache = getUserCache(chatId);
         return cache != null ? cache.getTotalQuestions() : 0;
     }
 
     public void clearUserCache(Long chatId) {
-        userCache.remove(chatId);
+        var state = chatStateStore.find(chatId);
+        if (state != null) {
+            state.setQuestionSession(null);
+            chatStateStore.removeIfEmpty(chatId);
+        }
+        sessionStore.markDeleted(chatId);
+    }
+
+    /**
+     * Сессия вытеснена из памяти по неактивности и завершена - сохраненная копия больше не нужна.
+     */
+    public void discardEvictedSession(Long chatId) {
+        sessionStore.markDeleted(chatId);
     }
 
     public boolean isUserInSession(Long chatId) {
-        return userCache.containsKey(chatId);
+        return getUserCache(chatId) != null;
     }
 }
@@ -0,0 +1,82 @@
+package com.github.puhlikov.interviewbot.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+/**
+ * Неизменяемый отсортированный массив id активных вопросов.
+ * Выборка N случайных id стоит O(N) и не зависит от числа вопросов.
+ */
+public final class QuestionIdSnapshot {
+
+    private final long[] ids;
+
+    /**
+     * @param sortedIds id по возрастанию, без повторов; массив не копируется
+     */
+    public QuestionIdSnapshot(long[] sortedIds) {
+        this.ids = sortedIds;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long maxId() {
+        return ids.length == 0 ? 0L : ids[ids.length - 1];
+    }
+
+    /**
+     * Добавляет id, большие {@link #maxId()} (новые вопросы), не пересортировывая массив.
+     */
+    public QuestionIdSnapshot append(long[] newerIds) {
+        if (newerIds.length == 0) {
+            return this;
+        }
+        long[] merged = Arrays.copyOf(ids, ids.length + newerIds.length);
+        System.arraycopy(newerIds, 0, merged, ids.length, newerIds.length);
+        return new QuestionIdSnapshot(merged);
+    }
+
+    public QuestionIdSnapshot with(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return this;
+        }
+        int insertAt = -position - 1;
+        long[] merged = new long[ids.length + 1];
+        System.arraycopy(ids, 0, merged, 0, insertAt);
+        merged[insertAt] = id;
+        System.arraycopy(ids, insertAt, merged, insertAt + 1, ids.length - insertAt);
+        return new QuestionIdSnapshot(merged);
+    }
+
+    /**
+     * Выбирает до {@code count} различных id в случайном порядке (алгоритм Флойда).
+     */
+    public long[] sample(int count, RandomGenerator random) {
+        int n = ids.length;
+        int k = Math.min(count, n);
+        long[] result = new long[k];
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        int filled = 0;
+        for (int j = n - k; j < n; j++) {
+            int candidate = random.nextInt(j + 1);
+            if (!chosen.add(candidate)) {
+                candidate = j;
+                chosen.add(j);
+            }
+            result[filled++] = ids[candidate];
+        }
+        // Алгоритм Флойда дает равновероятный набор, но не порядок - перемешиваем
+        for (int i = k - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            long tmp = result[i];
+            result[i] = result[swap];
+            result[swap] = tmp;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.repo.QuestionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Случайная выборка активных вопросов в памяти вместо ORDER BY random().
+ * Id активных вопросов хранятся в {@link QuestionIdSnapshot}; новые вопросы подгружаются
+ * инкрементально (id больше последнего известного), полная перезагрузка учитывает деактивацию.
+ */
+@Service
+public class QuestionSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionSampler.class);
+
+    private final QuestionRepository repository;
+    private final int pageSize;
+    private final long fullRefreshIntervalMs;
+
+    private volatile QuestionIdSnapshot snapshot;
+    private long lastFullRefreshMs;
+
+    public QuestionSampler(
+            QuestionRepository repository,
+            @Value("${bot.questions.sampler.page-size:10000}") int pageSize,
+            @Value("${bot.questions.sampler.full-refresh-ms:600000}") long fullRefreshIntervalMs
+    ) {
+        this.repository = repository;
+        this.pageSize = pageSize;
+        this.fullRefreshIntervalMs = fullRefreshIntervalMs;
+    }
+
+    public long[] sample(int count) {
+        return current().sample(count, ThreadLocalRandom.current());
+    }
+
+    public int size() {
+        return current().size();
+    }
+
+    /**
+     * Добавляет только что сохраненный вопрос, не дожидаясь обновления.
+     */
+    public synchronized void add(long id) {
+        if (snapshot != null) {
+            snapshot = snapshot.with(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.questions.sampler.refresh-ms:60000}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        if (snapshot == null || now - lastFullRefreshMs >= fullRefreshIntervalMs) {
+            snapshot = new QuestionIdSnapshot(loadIdsAfter(0L));
+            lastFullRefreshMs = now;
+            logger.debug("Question sampler reloaded: {} active questions", snapshot.size());
+        } else {
+            snapshot = snapshot.append(loadIdsAfter(snapshot.maxId()));
+        }
+    }
+
+    private QuestionIdSnapshot current() {
+        QuestionIdSnapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private long[] loadIdsAfter(long afterId) {
+        long[] ids = new long[16];
+        int count = 0;
+        long lastId = afterId;
+        while (true) {
+            List<Long> page = repository.findActiveIdsAfter(lastId, PageRequest.ofSize(pageSize));
+            if (count + page.size() > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + page.size()));
+            }
+            for (Long id : page) {
+                ids[count++] = id;
+            }
+            if (page.size() < pageSize) {
+                return Arrays.copyOf(ids, count);
+            }
+            lastId = ids[count - 1];
+        }
+    }
+}
@@ -1,31 +1,88 @@
 package com.github.puhlikov.interviewbot.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.puhlikov.interviewbot.model.Question;
 import com.github.puhlikov.interviewbot.repo.QuestionRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class QuestionService {
 
 	private final QuestionRepository repository;
+	private final QuestionSampler sampler;
+	// Общий кэш вопросов: сессии хранят только id, тексты берутся отсюда
+	private final Cache<Long, Question> questions;
 
-	public QuestionService(QuestionRepository repository) {
+	public QuestionService(
+			QuestionRepository repository,
+			QuestionSampler sampler,
+			@Value("${bot.questions.cache.max-size:10000}") long cacheMaxSize
+	) {
 		this.repository = repository;
+		this.sampler = sampler;
+		this.questions = Caffeine.newBuilder()
+				.maximumSize(cacheMaxSize)
+				.expireAfterWrite(Duration.ofHours(1))
+				.build();
 	}
 
+	/**
+	 * Случайные различные активные вопросы: id выбираются в памяти, строки читаются одним запросом.
+	 */
 	public List<Question> getRandomQuestions(int count) {
-		return repository.findRandomActive(count);
+		long[] ids = sampler.sample(count);
+		if (ids.length == 0) {
+			return List.of();
+		}
+		List<Long> idList = Arrays.stream(ids).boxed().toList();
+		Map<Long, Question> byId = repository.findAllById(idList).stream()
+				.collect(Collectors.toMap(Question::getId, Function.identity()));
+
+		List<Question> result = new ArrayList<>(ids.length);
+		for (Long id : idList) {
+			Question question = byId.get(id);
+			// Вопрос мог быть деактивирован после последнего обновления выборки
+			if (question != null && !Boolean.FALSE.equals(question.getIsActive())) {
+				result.add(question);
+				questions.put(id, question);
+			}
+		}
+		return result;
+	}
+
+	public boolean hasActiveQuestions() {
+		return sampler.size() > 0;
 	}
 
 	public Optional<Question> getById(Long id) {
-		return repository.findById(id);
+		Question cached = questions.getIfPresent(id);
+		if (cached != null) {
+			return Optional.of(cached);
+		}
+		Optional<Question> loaded = repository.findById(id);
+		loaded.ifPresent(question -> questions.put(id, question));
+		return loaded;
 	}
 
 	public void save(Question question) {
-		repository.save(question);
+		Question saved = repository.save(question);
+		if (saved.getId() != null) {
+			questions.put(saved.getId(), saved);
+			if (!Boolean.FALSE.equals(saved.getIsActive())) {
+				sampler.add(saved.getId());
+			}
+		}
 	}
 }
 
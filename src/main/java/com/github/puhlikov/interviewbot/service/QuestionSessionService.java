@@ -3,45 +3,51 @@ package com.github.puhlikov.interviewbot.service;
 import com.github.puhlikov.interviewbot.enums.QuestionState;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 @Service
 public class QuestionSessionService {
 
-    private final Map<Long, QuestionSession> userSessions = new ConcurrentHashMap<>();
+    private final ChatStateStore chatStateStore;
+
+    public QuestionSessionService(ChatStateStore chatStateStore) {
+        this.chatStateStore = chatStateStore;
+    }
 
     public void startSession(Long chatId) {
-        userSessions.put(chatId, new QuestionSession(QuestionState.AWAITING_QUESTION_TEXT));
+        chatStateStore.getOrCreate(chatId).setQuestionDraft(new QuestionSession(QuestionState.AWAITING_QUESTION_TEXT));
     }
 
     public void updateState(Long chatId, QuestionState state) {
-        QuestionSession session = userSessions.get(chatId);
+        QuestionSession session = getSession(chatId);
         if (session != null) {
             session.setState(state);
         }
     }
 
     public void setQuestionText(Long chatId, String text) {
-        QuestionSession session = userSessions.get(chatId);
+        QuestionSession session = getSession(chatId);
         if (session != null) {
             session.setQuestionText(text);
         }
     }
 
     public void setCategory(Long chatId, String category) {
-        QuestionSession session = userSessions.get(chatId);
+        QuestionSession session = getSession(chatId);
         if (session != null) {
             session.setCategory(category);
         }
     }
 
     public QuestionSession getSession(Long chatId) {
-        return userSessions.get(chatId);
+        ChatState state = chatStateStore.find(chatId);
+        return state != null ? state.getQuestionDraft() : null;
     }
 
     public void completeSession(Long chatId) {
-        userSessions.remove(chatId);
+        ChatState state = chatStateStore.find(chatId);
+        if (state != null) {
+            state.setQuestionDraft(null);
+            chatStateStore.removeIfEmpty(chatId);
+        }
     }
 
     public static class QuestionSession {
@@ -0,0 +1,146 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.model.PersistedQuestionSession;
+import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import com.github.puhlikov.interviewbot.repo.QuestionSessionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Сохранение сессий вопросов в question_sessions по схеме write-behind.
+ * Изменения только отмечаются в памяти (последнее изменение чата заменяет предыдущие) и записываются
+ * пачкой по таймеру и при остановке, поэтому обработка сообщений не ждет базу.
+ */
+@Service
+public class QuestionSessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionSessionStore.class);
+
+    // Отметка удаления в очереди записи
+    private static final UserQuestionCache DELETED = new UserQuestionCache(0L, new long[0], 0);
+
+    private final QuestionSessionRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration staleAfter;
+    private final ConcurrentHashMap<Long, UserQuestionCache> pending = new ConcurrentHashMap<>();
+
+    public QuestionSessionStore(
+            QuestionSessionRepository repository,
+            TransactionTemplate transactionTemplate,
+            @Value("${bot.chat-state.idle-ttl-minutes:120}") long staleAfterMinutes
+    ) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.staleAfter = Duration.ofMinutes(staleAfterMinutes);
+    }
+
+    /**
+     * Ставит сессию в очередь записи, если она все еще текущая для чата: поздний результат
+     * завершенной сессии не должен вернуть ее в базу.
+     */
+    public void markDirty(UserQuestionCache session, Supplier<UserQuestionCache> currentSession) {
+        pending.compute(session.getChatId(), (chatId, queued) ->
+                currentSession.get() == session ? session : queued);
+    }
+
+    public void markDeleted(Long chatId) {
+        pending.put(chatId, DELETED);
+    }
+
+    /**
+     * Загружает сессию с учетом еще не записанных изменений.
+     *
+     * @return сессия или null, если ее нет
+     */
+    public UserQuestionCache load(Long chatId) {
+        UserQuestionCache queued = pending.get(chatId);
+        if (queued != null) {
+            return queued == DELETED ? null : queued;
+        }
+        return repository.findById(chatId)
+                .map(QuestionSessionStore::toSession)
+                .orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${bot.sessions.flush-ms:2000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<PersistedQuestionSession> upserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        for (Long chatId : pending.keySet()) {
+            UserQuestionCache session = pending.remove(chatId);
+            if (session == DELETED) {
+                deletes.add(chatId);
+            } else if (session != null) {
+                upserts.add(toRecord(session, now));
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!upserts.isEmpty()) {
+                    repository.upsertAll(upserts);
+                }
+                if (!deletes.isEmpty()) {
+                    repository.deleteAllByIdInBatch(deletes);
+                }
+            });
+            logger.debug("Flushed question sessions: {} saved, {} deleted", upserts.size(), deletes.size());
+        } catch (Exception e) {
+            // Возвращаем изменения в очередь, если чат не успел измениться снова
+            logger.warn("Failed to flush question sessions, will retry: {}", e.getMessage());
+            upserts.forEach(record -> pending.putIfAbsent(record.getChatId(), toSession(record)));
+            deletes.forEach(chatId -> pending.putIfAbsent(chatId, DELETED));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Удаляет сессии, брошенные дольше времени простоя: в памяти они бы уже были вытеснены.
+     */
+    @Scheduled(fixedDelayString = "${bot.sessions.purge-ms:3600000}")
+    public void purgeStale() {
+        int removed = repository.deleteUpdatedBefore(Instant.now().minus(staleAfter));
+        if (removed > 0) {
+            logger.info("Removed {} stale question sessions", removed);
+        }
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private static PersistedQuestionSession toRecord(UserQuestionCache session, Instant now) {
+        long[] ids = session.getQuestionIds();
+        ByteBuffer buffer = ByteBuffer.allocate(ids.length * Long.BYTES);
+        buffer.asLongBuffer().put(ids);
+        return new PersistedQuestionSession(session.getChatId(), buffer.array(), session.getScores(),
+                session.getCurrentIndex(), session.getQuestionsPerSession(), now);
+    }
+
+    private static UserQuestionCache toSession(PersistedQuestionSession record) {
+        long[] ids = new long[record.getQuestionIds().length / Long.BYTES];
+        ByteBuffer.wrap(record.getQuestionIds()).asLongBuffer().get(ids);
+        return UserQuestionCache.restore(record.getChatId(), ids, record.getScores(),
+                record.getCurrentIndex(), record.getQuestionsPerSession());
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.repo.QuestionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка, относится ли вопрос к IT, без обращения к модели в очевидных случаях.
+ * Словарь строится по основам слов из активных вопросов базы (основа учитывается, если встречается
+ * хотя бы в {@code minDocFrequency} вопросах, но не больше чем в доле {@code maxDocRatio} - такие слова
+ * слишком общие) и дополняется встроенным списком терминов. Служебные слова и слова короче трех букв
+ * не учитываются.
+ * Модель спрашивается только когда совпадений мало. Отсутствие совпадений ничего не доказывает -
+ * словарь не покрывает всех тем, поэтому локальный отказ требует явных признаков другой темы:
+ * нескольких слов из списка бытовых тем при отсутствии IT-терминов и признаков кода.
+ */
+@Service
+public class QuestionTopicClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionTopicClassifier.class);
+
+    public enum Verdict { RELATED, NOT_RELATED, UNSURE }
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}+#]+");
+    // Идентификаторы и синтаксис кода: camelCase, snake_case, вызовы, пакеты
+    private static final Pattern CODE_HINT = Pattern.compile(
+            "[a-z][A-Z]|\\w_\\w|\\w\\(|\\w\\.\\w|[{}<>;=]|@\\w");
+    private static final int STEM_LENGTH = 6;
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final int MIN_OFF_TOPIC_TO_REJECT = 2;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "что", "как", "такое", "это", "для", "чем", "между", "разница", "отличие", "отличается",
+            "отличаются", "зачем", "почему", "когда", "где", "какие", "какой", "какая", "каких", "каким",
+            "можно", "нужно", "надо", "есть", "его", "она", "они", "оно", "или", "если", "при", "без",
+            "под", "над", "про", "опишите", "объясните", "расскажите", "приведите", "пример", "примеры",
+            "чего", "кто", "так", "все", "всё", "вас", "нас", "мне", "вам", "нам", "них", "него", "нее",
+            "неё", "ему", "ней", "мой", "ваш", "наш", "свой", "этот", "эта", "эти", "этого", "этой",
+            "том", "тем", "того", "там", "тут", "вот", "уже", "еще", "ещё", "тоже", "также", "только",
+            "очень", "чтобы", "который", "которая", "которые", "которых", "был", "была", "были", "быть",
+            "будет", "нет", "после", "перед", "через", "более", "менее", "сколько", "чему", "каков",
+            "какова", "каковы", "себя", "the", "what", "how", "why", "when", "which", "who",
+            "does", "difference", "between", "and", "for", "with", "from", "that", "this", "can", "you",
+            "your", "are", "not", "use");
+
+    private static final Set<String> SEED_TERMS = stems(List.of(
+            "java", "kotlin", "python", "javascript", "typescript", "golang", "c++", "c#", "sql", "nosql",
+            "spring", "hibernate", "jpa", "jdbc", "maven", "gradle", "git", "docker", "kubernetes", "linux",
+            "http", "https", "rest", "grpc", "api", "json", "xml", "jvm", "jdk", "kafka", "redis", "postgresql",
+            "класс", "метод", "интерфейс", "наследование", "полиморфизм", "инкапсуляция", "исключение",
+            "многопоточность", "коллекция", "массив", "алгоритм", "транзакция", "индекс", "микросервис",
+            "компилятор", "переменная", "рекурсия", "паттерн", "сериализация", "асинхронный", "фреймворк",
+            "программирование", "программа", "бин", "аннотация", "лямбда", "дженерики", "байткод"));
+
+    // Начала слов явно не IT-тем (быт, медицина, кухня, путешествия); сравниваются с началом слова,
+    // поэтому подобраны так, чтобы не совпадать с IT-терминами ("суп" совпал бы с "суперкласс")
+    private static final List<String> OFF_TOPIC_PREFIXES = List.of(
+            "врач", "полис", "поликлин", "больниц", "лекарств", "таблетк", "аптек", "симптом", "болезн",
+            "пригот", "рецепт", "борщ", "сметан", "салат", "торт", "выпечк", "духовк",
+            "отпуск", "билет", "гостиниц", "отель", "виза", "футбол", "хоккей", "ипотек", "квартир",
+            "ремонт", "дач", "огород", "рассад", "погод", "гороскоп", "свадьб", "кошк", "собак",
+            "recipe", "doctor", "hotel", "football", "weather");
+
+    private final QuestionRepository repository;
+    private final WorkingApiService workingApiService;
+    private final int minDocFrequency;
+    private final double maxDocRatio;
+    private final Counter localRelated;
+    private final Counter localNotRelated;
+    private final Counter llmRelated;
+    private final Counter llmNotRelated;
+
+    private volatile Set<String> vocabulary;
+
+    public QuestionTopicClassifier(
+            QuestionRepository repository,
+            WorkingApiService workingApiService,
+            @Value("${bot.classifier.min-doc-frequency:2}") int minDocFrequency,
+            @Value("${bot.classifier.max-doc-ratio:0.3}") double maxDocRatio,
+            MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        this.workingApiService = workingApiService;
+        this.minDocFrequency = minDocFrequency;
+        this.maxDocRatio = maxDocRatio;
+        this.localRelated = checkCounter(meterRegistry, "local", "related");
+        this.localNotRelated = checkCounter(meterRegistry, "local", "not_related");
+        this.llmRelated = checkCounter(meterRegistry, "llm", "related");
+        this.llmNotRelated = checkCounter(meterRegistry, "llm", "not_related");
+    }
+
+    private static Counter checkCounter(MeterRegistry meterRegistry, String path, String result) {
+        return Counter.builder("bot.topic.checks")
+                .description("Question topic checks by whether the local classifier or the LLM answered")
+                .tag("path", path)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Как {@link WorkingApiService#isProgrammingRelated}, но модель спрашивается только при сомнении.
+     */
+    public Mono<Boolean> isProgrammingRelated(String questionText) {
+        Verdict verdict = classify(questionText);
+        if (verdict == Verdict.RELATED) {
+            localRelated.increment();
+            return Mono.just(true);
+        }
+        if (verdict == Verdict.NOT_RELATED) {
+            localNotRelated.increment();
+            return Mono.just(false);
+        }
+        return workingApiService.isProgrammingRelated(questionText)
+                .doOnNext(related -> (related ? llmRelated : llmNotRelated).increment());
+    }
+
+    public Verdict classify(String questionText) {
+        List<String> tokens = tokenize(questionText);
+        Set<String> stems = stems(tokens);
+        if (stems.isEmpty()) {
+            return Verdict.UNSURE;
+        }
+        Set<String> known = currentVocabulary();
+        long matched = stems.stream().filter(known::contains).count();
+        if (matched >= 2 || (matched == 1 && stems.size() <= 2)) {
+            return Verdict.RELATED;
+        }
+        if (matched == 0 && offTopicMatches(tokens) >= MIN_OFF_TOPIC_TO_REJECT
+                && !CODE_HINT.matcher(questionText).find()) {
+            return Verdict.NOT_RELATED;
+        }
+        return Verdict.UNSURE;
+    }
+
+    private static long offTopicMatches(List<String> tokens) {
+        return OFF_TOPIC_PREFIXES.stream()
+                .filter(prefix -> tokens.stream().anyMatch(token -> token.startsWith(prefix)))
+                .count();
+    }
+
+    @Scheduled(fixedDelayString = "${bot.classifier.refresh-ms:3600000}", initialDelayString = "${bot.classifier.refresh-ms:3600000}")
+    public void refresh() {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        List<String> texts = repository.findActiveQuestionTexts();
+        for (String text : texts) {
+            for (String stem : stems(tokenize(text))) {
+                documentFrequency.merge(stem, 1, Integer::sum);
+            }
+        }
+        // В маленькой базе доля ничего не говорит: порог не опускается ниже minDocFrequency
+        int maxDocFrequency = Math.max(minDocFrequency, (int) (texts.size() * maxDocRatio));
+        Set<String> built = new HashSet<>(SEED_TERMS);
+        documentFrequency.forEach((stem, frequency) -> {
+            if (frequency >= minDocFrequency && frequency <= maxDocFrequency) {
+                built.add(stem);
+            }
+        });
+        vocabulary = built;
+        logger.debug("Topic vocabulary rebuilt from {} questions: {} stems", texts.size(), built.size());
+    }
+
+    private Set<String> currentVocabulary() {
+        Set<String> current = vocabulary;
+        if (current == null) {
+            try {
+                refresh();
+                current = vocabulary;
+            } catch (Exception e) {
+                // Без базы работаем по встроенному списку и попробуем снова при следующем вопросе
+                logger.warn("Failed to build topic vocabulary: {}", e.getMessage());
+                current = SEED_TERMS;
+            }
+        }
+        return current;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            // Короткие токены - предлоги и частицы; исключение для имен вроде c# и c++
+            boolean longEnough = token.length() >= MIN_TOKEN_LENGTH || token.indexOf('#') >= 0;
+            if (longEnough && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Грубая основа слова - первые символы: "коллекция" и "коллекции" совпадают.
+     */
+    private static Set<String> stems(List<String> tokens) {
+        Set<String> stems = new HashSet<>();
+        for (String token : tokens) {
+            stems.add(token.length() > STEM_LENGTH ? token.substring(0, STEM_LENGTH) : token);
+        }
+        return stems;
+    }
+}
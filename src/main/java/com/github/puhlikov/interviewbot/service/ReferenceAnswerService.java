@@ -0,0 +1,118 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.puhlikov.interviewbot.model.Question;
+import com.github.puhlikov.interviewbot.model.QuestionAnswer;
+import com.github.puhlikov.interviewbot.repo.QuestionAnswerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Эталонные ответы на вопросы: память -> таблица question_answers -> генерация моделью.
+ * Ответ на вопрос из базы почти не меняется, поэтому модель вызывается для вопроса один раз.
+ */
+@Service
+public class ReferenceAnswerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceAnswerService.class);
+
+    private final QuestionAnswerRepository repository;
+    private final WorkingApiService workingApiService;
+    private final Cache<Long, String> cache;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public ReferenceAnswerService(
+            QuestionAnswerRepository repository,
+            WorkingApiService workingApiService,
+            @Value("${bot.answers.cache.max-entries:5000}") int maxCachedAnswers,
+            MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        this.workingApiService = workingApiService;
+        // Число вопросов ограничено таблицей questions; предел защищает от неожиданного роста,
+        // при переполнении вытесняются редко запрашиваемые ответы
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxCachedAnswers)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "bot.answers");
+        this.memoryHits = lookupCounter(meterRegistry, "memory");
+        this.databaseHits = lookupCounter(meterRegistry, "database");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bot.answers.lookup")
+                .description("Reference answer lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ищет сохраненный ответ в памяти, затем в базе. Выполняет блокирующий запрос к базе.
+     */
+    public Optional<String> findStored(Long questionId) {
+        String cached = cache.getIfPresent(questionId);
+        if (cached != null) {
+            memoryHits.increment();
+            return Optional.of(cached);
+        }
+        Optional<String> stored = repository.findById(questionId).map(QuestionAnswer::getAnswerText);
+        if (stored.isPresent()) {
+            databaseHits.increment();
+            cache.put(questionId, stored.get());
+        } else {
+            misses.increment();
+        }
+        return stored;
+    }
+
+    /**
+     * Генерирует ответ моделью и сохраняет его, если запрос завершился успешно.
+     */
+    public Mono<String> generate(Question question) {
+        return workingApiService.getAnswer(question.getQuestionText())
+                .flatMap(answer -> storeAsync(question.getId(), answer).thenReturn(answer));
+    }
+
+    /**
+     * Сохраняет ответ вне потока Reactor: запись в базу блокирующая.
+     * Ответы с ошибкой запроса не сохраняются.
+     */
+    public Mono<Void> storeAsync(Long questionId, String answer) {
+        if (WorkingApiService.isFailedAnswer(answer)) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> store(questionId, answer))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(error -> {
+                    logger.warn("Failed to store reference answer for question {}: {}", questionId, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    void store(Long questionId, String answer) {
+        try {
+            repository.save(new QuestionAnswer(questionId, answer));
+        } catch (DataIntegrityViolationException e) {
+            // Ответ уже сохранен параллельным запросом или вопрос удален
+            logger.debug("Reference answer for question {} was not stored: {}", questionId, e.getMessage());
+        }
+        cache.put(questionId, answer);
+    }
+}
@@ -1,49 +1,135 @@
 package com.github.puhlikov.interviewbot.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.puhlikov.interviewbot.bot.constants.AppConstants;
 import com.github.puhlikov.interviewbot.enums.RegistrationState;
 import com.github.puhlikov.interviewbot.enums.SettingsState;
 import com.github.puhlikov.interviewbot.model.BotUser;
 import com.github.puhlikov.interviewbot.repo.BotUserRepository;
+import com.github.puhlikov.interviewbot.schedule.NotificationTimes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 @Service
 public class RegistrationService {
 
     private static final Logger logger = LoggerFactory.getLogger(RegistrationService.class);
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(AppConstants.TIME_FORMAT);
+    private static final int MAX_SCHEDULE_UPDATE_ATTEMPTS = 3;
     
     private final BotUserRepository userRepository;
-    private final Map<Long, SettingsState> userSettingsState = new ConcurrentHashMap<>();
+    private final ChatStateStore chatStateStore;
+    // Пользователи по chatId: проверка регистрации на каждом сообщении обходится без SQL.
+    // Кэшированные объекты не изменяются - изменения применяются к свежей копии и заменяют запись.
+    // Ограничение по времени подхватывает изменения, сделанные другими экземплярами приложения
+    private final Cache<Long, BotUser> users;
 
-    public RegistrationService(BotUserRepository userRepository) {
+    public RegistrationService(
+            BotUserRepository userRepository,
+            ChatStateStore chatStateStore,
+            @Value("${bot.users.cache.max-size:50000}") long cacheMaxSize,
+            @Value("${bot.users.cache.ttl-minutes:10}") long cacheTtlMinutes,
+            MeterRegistry meterRegistry
+    ) {
         this.userRepository = userRepository;
+        this.chatStateStore = chatStateStore;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "bot.users");
     }
     
-    private Optional<BotUser> findUser(Long chatId) {
-        return userRepository.findByChatId(chatId);
+    private BotUser cache(BotUser user) {
+        if (user != null && user.getChatId() != null) {
+            users.put(user.getChatId(), user);
+        }
+        return user;
     }
     
-    private BotUser updateUser(Long chatId, java.util.function.Consumer<BotUser> updater) {
-        return findUser(chatId)
-                .map(user -> {
-                    updater.accept(user);
-                    return userRepository.save(user);
-                })
-                .orElse(null);
+    /**
+     * Выполняет точечный UPDATE колонки, не влияющей на расписание, и применяет то же изменение
+     * к копии пользователя в кэше. Остальные колонки в базу не записываются.
+     *
+     * @param statement UPDATE только изменяемой колонки; возвращает число обновленных строк
+     * @return обновленный пользователь или null, если его нет
+     */
+    private BotUser updateUser(Long chatId, IntSupplier statement, Consumer<BotUser> updater) {
+        BotUser current = getUserByChatId(chatId).orElse(null);
+        if (current == null) {
+            return null;
+        }
+        if (statement.getAsInt() == 0) {
+            return userDisappeared(chatId);
+        }
+        BotUser updated = current.copy();
+        updater.accept(updated);
+        return cache(updated);
+    }
+
+    /**
+     * Изменение колонок, от которых зависит расписание (время, часовой пояс, состояние регистрации).
+     * next_notification_at рассчитывается по копии из кэша и записывается той же инструкцией UPDATE,
+     * которая проверяет, что в базе те же значения расписания и момента уведомления, что и в кэше.
+     * Если строку успели изменить (DailyBatchScheduler сдвигает момент уведомления в обход кэша,
+     * другой экземпляр меняет настройки), обновляется 0 строк: пользователь перечитывается и изменение
+     * повторяется. Так устаревший момент из кэша не записывается, а обычное изменение стоит одного UPDATE.
+     *
+     * @param statement UPDATE изменяемых колонок и next_notification_at с проверкой ожидаемых значений
+     * @return обновленный пользователь или null, если его нет
+     */
+    private BotUser updateSchedule(Long chatId, Consumer<BotUser> updater, ScheduleStatement statement) {
+        BotUser current = getUserByChatId(chatId).orElse(null);
+        for (int attempt = 1; current != null; attempt++) {
+            BotUser updated = current.copy();
+            updater.accept(updated);
+            updated.setNextNotificationAt(NotificationTimes.nextAfter(updated, Instant.now()));
+            if (statement.execute(updated, current) > 0) {
+                return cache(updated);
+            }
+            users.invalidate(chatId);
+            if (attempt >= MAX_SCHEDULE_UPDATE_ATTEMPTS) {
+                logger.warn("User with chatId {} kept changing during update, giving up", chatId);
+                throw new IllegalStateException("Не удалось сохранить изменения. Попробуйте еще раз");
+            }
+            current = userRepository.findByChatId(chatId).orElse(null);
+        }
+        return userDisappeared(chatId);
+    }
+
+    /**
+     * UPDATE изменения расписания: {@code updated} - новые значения, {@code expected} - значения,
+     * по которым они рассчитаны.
+     */
+    @FunctionalInterface
+    private interface ScheduleStatement {
+        int execute(BotUser updated, BotUser expected);
+    }
+
+    private BotUser userDisappeared(Long chatId) {
+        // Строка удалена после попадания в кэш
+        logger.warn("User with chatId {} disappeared before update", chatId);
+        users.invalidate(chatId);
+        return null;
     }
 
     public BotUser startRegistration(Long chatId, String firstName, String lastName, String username) {
@@ -53,7 +139,7 @@ public class RegistrationService {
         user.setLastName(lastName);
         user.setUsername(username);
         user.setRegistrationState(RegistrationState.SCHEDULE_TIME); // Сразу переходим к настройке времени
-        return userRepository.save(user);
+        return cache(userRepository.save(user));
     }
     
     // Обратная совместимость для существующих вызовов
@@ -62,45 +148,55 @@ public class RegistrationService {
         BotUser user = new BotUser();
         user.setChatId(chatId);
         user.setRegistrationState(RegistrationState.SCHEDULE_TIME);
-        return userRepository.save(user);
+        return cache(userRepository.save(user));
     }
 
     public Optional<BotUser> getUserByChatId(Long chatId) {
-        return userRepository.findByChatId(chatId);
+        // Отсутствующий пользователь не кэшируется: он сразу проходит регистрацию
+        return Optional.ofNullable(users.get(chatId, id -> userRepository.findByChatId(id).orElse(null)));
     }
 
     public BotUser updateUserState(Long chatId, RegistrationState state) {
-        return updateUser(chatId, user -> user.setRegistrationState(state));
+        return updateSchedule(chatId, user -> user.setRegistrationState(state),
+                (user, expected) -> userRepository.updateRegistrationState(chatId, state,
+                        user.getNextNotificationAt(), expected.getScheduleTime(), expected.getTimezone(),
+                        expected.getRegistrationState(), expected.getNextNotificationAt()));
     }
 
     public BotUser updateFirstName(Long chatId, String firstName) {
-        return updateUser(chatId, user -> {
+        return updateSchedule(chatId, user -> {
             user.setFirstName(firstName);
             user.setRegistrationState(RegistrationState.LAST_NAME);
-        });
+        }, (user, expected) -> userRepository.updateFirstName(chatId, firstName, user.getRegistrationState(),
+                user.getNextNotificationAt(), expected.getScheduleTime(), expected.getTimezone(),
+                expected.getRegistrationState(), expected.getNextNotificationAt()));
     }
 
     public BotUser updateLastName(Long chatId, String lastName) {
-        return updateUser(chatId, user -> {
+        return updateSchedule(chatId, user -> {
             user.setLastName(lastName);
             user.setRegistrationState(RegistrationState.USERNAME);
-        });
+        }, (user, expected) -> userRepository.updateLastName(chatId, lastName, user.getRegistrationState(),
+                user.getNextNotificationAt(), expected.getScheduleTime(), expected.getTimezone(),
+                expected.getRegistrationState(), expected.getNextNotificationAt()));
     }
 
     public BotUser updateUsername(Long chatId, String username) {
-        return updateUser(chatId, user -> {
+        return updateSchedule(chatId, user -> {
             user.setUsername(username);
             user.setRegistrationState(RegistrationState.SCHEDULE_TIME);
-        });
+        }, (user, expected) -> userRepository.updateUsername(chatId, username, user.getRegistrationState(),
+                user.getNextNotificationAt(), expected.getScheduleTime(), expected.getTimezone(),
+                expected.getRegistrationState(), expected.getNextNotificationAt()));
     }
 
     public BotUser updateScheduleTime(Long chatId, String timeString) {
         try {
             LocalTime scheduleTime = LocalTime.parse(timeString, TIME_FORMATTER);
-            return updateUser(chatId, user -> {
+            return updateSchedule(chatId, user -> {
                 user.setScheduleTime(scheduleTime);
                 user.setRegistrationState(RegistrationState.TIMEZONE);
-            });
+            }, this::updateScheduleTime);
         } catch (DateTimeParseException e) {
             logger.warn("Invalid time format: {}", timeString);
             throw new IllegalArgumentException("Неверный формат времени. Используйте HH:mm (например, 14:00)");
@@ -110,10 +206,8 @@ public class RegistrationService {
     public BotUser updateScheduleTimeForSettings(Long chatId, String timeString) {
         try {
             LocalTime scheduleTime = LocalTime.parse(timeString, TIME_FORMATTER);
-            return updateUser(chatId, user -> {
-                user.setScheduleTime(scheduleTime);
-                // Не меняем состояние регистрации при изменении в настройках
-            });
+            // Не меняем состояние регистрации при изменении в настройках
+            return updateSchedule(chatId, user -> user.setScheduleTime(scheduleTime), this::updateScheduleTime);
         } catch (DateTimeParseException e) {
             logger.warn("Invalid time format: {}", timeString);
             throw new IllegalArgumentException("Неверный формат времени. Используйте HH:mm (например, 14:00)");
@@ -121,11 +215,19 @@ public class RegistrationService {
     }
 
     public BotUser updateTimezone(Long chatId, String timezone) {
-        return updateUser(chatId, user -> {
+        return updateSchedule(chatId, user -> {
             user.setTimezone(timezone);
             user.setRegistrationState(RegistrationState.COMPLETED);
             user.setQuestionsPerSession(AppConstants.DEFAULT_QUESTIONS_PER_SESSION);
-        });
+        }, (user, expected) -> userRepository.updateTimezone(chatId, timezone, user.getRegistrationState(),
+                user.getQuestionsPerSession(), user.getNextNotificationAt(), expected.getScheduleTime(),
+                expected.getTimezone(), expected.getRegistrationState(), expected.getNextNotificationAt()));
+    }
+
+    private int updateScheduleTime(BotUser user, BotUser expected) {
+        return userRepository.updateSchedule(user.getChatId(), user.getScheduleTime(), user.getRegistrationState(),
+                user.getNextNotificationAt(), expected.getScheduleTime(), expected.getTimezone(),
+                expected.getRegistrationState(), expected.getNextNotificationAt());
     }
 
     public ReplyKeyboardMarkup getTimezoneKeyboard() {
@@ -166,14 +268,14 @@ public class RegistrationService {
                         AppConstants.MAX_QUESTIONS_PER_SESSION));
             }
 
-            BotUser updated = updateUser(chatId, user -> {
-                user.setQuestionsPerSession(questionsCount);
-                clearSettingsState(chatId);
-            });
+            BotUser updated = updateUser(chatId,
+                    () -> userRepository.updateQuestionsPerSession(chatId, questionsCount),
+                    user -> user.setQuestionsPerSession(questionsCount));
             
             if (updated == null) {
                 throw new IllegalArgumentException("Пользователь не найден");
             }
+            clearSettingsState(chatId);
             
             return updated;
         } catch (NumberFormatException e) {
@@ -186,25 +288,29 @@ public class RegistrationService {
     }
 
     public void startQuestionsCountSetting(Long chatId) {
-        userSettingsState.put(chatId, SettingsState.AWAITING_QUESTIONS_COUNT);
+        chatStateStore.getOrCreate(chatId).setSettingsState(SettingsState.AWAITING_QUESTIONS_COUNT);
     }
 
     public void startTimeSetting(Long chatId) {
-        userSettingsState.put(chatId, SettingsState.AWAITING_TIME);
+        chatStateStore.getOrCreate(chatId).setSettingsState(SettingsState.AWAITING_TIME);
     }
 
     public boolean isInSettingsState(Long chatId, SettingsState state) {
-        return userSettingsState.getOrDefault(chatId, SettingsState.NONE) == state;
+        ChatState chatState = chatStateStore.find(chatId);
+        SettingsState current = chatState != null ? chatState.getSettingsState() : SettingsState.NONE;
+        return current == state;
     }
 
     public void clearSettingsState(Long chatId) {
-        userSettingsState.remove(chatId);
+        ChatState chatState = chatStateStore.find(chatId);
+        if (chatState != null) {
+            chatState.setSettingsState(SettingsState.NONE);
+            chatStateStore.removeIfEmpty(chatId);
+        }
     }
 
     public BotUser disableNotifications(Long chatId) {
-        BotUser updated = updateUser(chatId, user -> {
-            user.setScheduleTime(null);
-        });
+        BotUser updated = updateSchedule(chatId, user -> user.setScheduleTime(null), this::updateScheduleTime);
         
         if (updated == null) {
             throw new IllegalArgumentException("Пользователь не найден");
@@ -0,0 +1,139 @@
+package com.github.puhlikov.interviewbot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Показывает ответ модели по мере генерации: отправляет сообщение-заглушку и периодически
+ * редактирует его (editMessageText). Когда текст приближается к лимиту Telegram в 4096 символов,
+ * текущее сообщение фиксируется и продолжение уходит в новое.
+ */
+@Service
+public class StreamingAnswerSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAnswerSender.class);
+    private static final String TYPING_MARK = " ⏳";
+    static final String EMPTY_ANSWER = "❌ Не удалось получить ответ от API. Ответ пуст.";
+
+    private final MessageSender messageSender;
+    private final Duration editInterval;
+    private final int maxMessageLength;
+
+    public StreamingAnswerSender(
+            MessageSender messageSender,
+            @Value("${bot.answer.streaming.edit-interval-ms:1200}") long editIntervalMs,
+            @Value("${bot.answer.streaming.max-message-length:3900}") int maxMessageLength
+    ) {
+        this.messageSender = messageSender;
+        this.editInterval = Duration.ofMillis(editIntervalMs);
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    /**
+     * @param chatId чат, в который выводится ответ
+     * @param header текст перед ответом в первом сообщении
+     * @param deltas фрагменты ответа
+     * @return полный текст ответа; завершается после доставки последней правки
+     */
+    public Mono<String> stream(Long chatId, String header, Flux<String> deltas) {
+        return Mono.defer(() -> {
+            StreamState state = new StreamState(chatId, header);
+            return deltas
+                    .doOnNext(state::append)
+                    .sample(editInterval)
+                    .concatMap(ignored -> state.flush(false))
+                    .then(Mono.defer(() -> state.flush(true)))
+                    .then(Mono.fromSupplier(state::fullText));
+        });
+    }
+
+    /**
+     * Состояние одного потокового ответа. Фрагменты добавляются из потока Reactor,
+     * правки выполняются последовательно (concatMap), поэтому достаточно синхронизации на объекте.
+     */
+    private final class StreamState {
+        private final Long chatId;
+        private final StringBuilder full = new StringBuilder();
+        private final StringBuilder segment = new StringBuilder();
+        private CompletableFuture<Message> currentMessage;
+        private String lastSentText;
+
+        private StreamState(Long chatId, String header) {
+            this.chatId = chatId;
+            this.segment.append(header);
+            this.lastSentText = header + TYPING_MARK;
+            this.currentMessage = messageSender.sendMessage(chatId, lastSentText);
+        }
+
+        synchronized void append(String delta) {
+            full.append(delta);
+            segment.append(delta);
+        }
+
+        synchronized String fullText() {
+            return full.length() > 0 ? full.toString() : EMPTY_ANSWER;
+        }
+
+        Mono<Void> flush(boolean last) {
+            CompletableFuture<?> pending;
+            synchronized (this) {
+                if (last && full.length() == 0) {
+                    segment.append(EMPTY_ANSWER);
+                }
+                // Переносим в новые сообщения все, что не помещается в текущее
+                while (segment.length() > maxMessageLength) {
+                    int split = splitPoint(segment);
+                    edit(segment.substring(0, split));
+                    String rest = segment.substring(split);
+                    segment.setLength(0);
+                    segment.append(rest);
+                    lastSentText = segment + TYPING_MARK;
+                    currentMessage = messageSender.sendMessage(chatId, lastSentText);
+                }
+                pending = edit(last ? segment.toString() : segment + TYPING_MARK);
+            }
+            return pending != null ? Mono.fromFuture(pending).then() : Mono.empty();
+        }
+
+        private CompletableFuture<?> edit(String text) {
+            if (text.equals(lastSentText)) {
+                return null;
+            }
+            lastSentText = text;
+            return currentMessage
+                    .thenCompose(message -> messageSender.submit(chatId, EditMessageText.builder()
+                            .chatId(chatId.toString())
+                            .messageId(message.getMessageId())
+                            .text(text)
+                            .build()))
+                    .exceptionally(error -> {
+                        logger.warn("Failed to update streamed answer for chatId {}: {}", chatId, error.getMessage());
+                        return null;
+                    });
+        }
+
+        private int splitPoint(CharSequence text) {
+            for (int i = maxMessageLength; i > maxMessageLength / 2; i--) {
+                if (text.charAt(i - 1) == '\n') {
+                    return i;
+                }
+            }
+            for (int i = maxMessageLength; i > maxMessageLength / 2; i--) {
+                if (text.charAt(i - 1) == ' ') {
+                    return i;
+                }
+            }
+            // Не разрезаем суррогатную пару (emoji)
+            return Character.isHighSurrogate(text.charAt(maxMessageLength - 1)) ? maxMessageLength - 1 : maxMessageLength;
+        }
+    }
+}
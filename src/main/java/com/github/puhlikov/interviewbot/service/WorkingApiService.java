@@ -1,204 +1,137 @@
 package com.github.puhlikov.interviewbot.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.puhlikov.interviewbot.bot.constants.AppConstants;
+import com.github.puhlikov.interviewbot.exception.UpstreamUnavailableException;
+import com.github.puhlikov.interviewbot.model.AnswerEvaluation;
+import com.github.puhlikov.interviewbot.service.llm.CallType;
+import com.github.puhlikov.interviewbot.service.llm.EvaluationJsonParser;
+import com.github.puhlikov.interviewbot.service.llm.GenerationProfile;
+import com.github.puhlikov.interviewbot.service.llm.EvaluationJsonParser.MalformedEvaluationException;
+import com.github.puhlikov.interviewbot.service.llm.LlmRouter;
+import com.github.puhlikov.interviewbot.service.llm.LlmUpstreamGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
 import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class WorkingApiService {
 
     private static final Logger logger = LoggerFactory.getLogger(WorkingApiService.class);
-    private static final String API_BASE_URL = "https://chat.gpt-chatbot.ru";
-    private static final String API_ENDPOINT = "/api/openai/v1/chat/completions";
-    private static final String DATA_PREFIX = "data: ";
-    private static final String DONE_MARKER = "[DONE]";
-    private static final String ANSI_ESCAPE_REGEX = "\u001B\\[[;\\d]*m";
+    private static final String ERROR_MARK = "❌";
+    private static final String STREAM_INTERRUPTED = "\n\n" + ERROR_MARK + " Ответ прерван из-за ошибки сети.";
     
-    private final WebClient client;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InFlightRequests inFlight;
+    private final LlmRouter router;
+    private final Counter malformedEvaluations;
 
-    public WorkingApiService() {
-        HttpClient httpClient = HttpClient.create()
-                .responseTimeout(Duration.ofMinutes(AppConstants.API_RESPONSE_TIMEOUT_MINUTES))
-                .keepAlive(true)
-                .followRedirect(true);
-
-        this.client = WebClient.builder()
-                .baseUrl(API_BASE_URL)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .codecs(configurer -> configurer.defaultCodecs()
-                    .maxInMemorySize(AppConstants.API_MAX_IN_MEMORY_SIZE_MB * 1024 * 1024))
-                .defaultHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.0.0 YaBrowser/25.8.0.0 Safari/537.36")
-                .defaultHeader("Accept", "application/json, text/event-stream")
-                .defaultHeader("Accept-Language", "ru,en;q=0.9,la;q=0.8,sr;q=0.7,bg;q=0.6")
-                .defaultHeader("Content-Type", "application/json")
-                .defaultHeader("Referer", "https://chat.gpt-chatbot.ru/")
-                .defaultHeader("Origin", "https://chat.gpt-chatbot.ru")
-                .defaultHeader("Priority", "u=1, i")
-                .defaultHeader("Sec-Fetch-Dest", "empty")
-                .defaultHeader("Sec-Fetch-Mode", "cors")
-                .defaultHeader("Sec-Fetch-Site", "same-origin")
-                .defaultHeader("Sec-CH-UA", "\"Not)A;Brand\";v=\"8\", \"Chromium\";v=\"138\", \"YaBrowser\";v=\"25.8\", \"Yowser\";v=\"2.5\"")
-                .defaultHeader("Sec-CH-UA-Mobile", "?0")
-                .defaultHeader("Sec-CH-UA-Platform", "\"Linux\"")
-                .build();
+    public WorkingApiService(InFlightRequests inFlight, LlmRouter router, MeterRegistry meterRegistry) {
+        this.inFlight = inFlight;
+        this.router = router;
+        this.malformedEvaluations = Counter.builder("bot.llm.evaluation.malformed")
+                .description("Answer evaluations the model returned in an unexpected format")
+                .register(meterRegistry);
     }
 
+    /**
+     * Одновременные запросы ответа на один и тот же вопрос выполняются одним обращением к API.
+     */
     public Mono<String> getAnswer(String questionText) {
-        String logQuestion = questionText.length() > 50 
-            ? questionText.substring(0, 50) + "..." 
-            : questionText;
-        logger.debug("Sending request to GPT-Chatbot API for question: {}", logQuestion);
+        return complete(CallType.ANSWER, questionText);
+    }
 
-        Map<String, Object> requestBody = buildRequestBody(questionText);
+    private Mono<String> complete(CallType type, String prompt) {
+        String kind = type.name().toLowerCase();
+        return inFlight.join(InFlightRequests.key(kind, prompt), () -> requestAnswer(type, prompt));
+    }
 
-        return client.post()
-                .uri(API_ENDPOINT)
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToFlux(DataBuffer.class)
-                .timeout(Duration.ofMinutes(AppConstants.API_RESPONSE_TIMEOUT_MINUTES))
-                .map(this::convertDataBufferToString)
-                .flatMap(this::splitIntoLines)
-                .filter(line -> line != null && !line.trim().isEmpty())
-                .map(this::removeAnsiCodes)
-                .filter(line -> line.startsWith(DATA_PREFIX))
-                .flatMap(this::parseStreamChunk)
+    private Mono<String> requestAnswer(CallType type, String prompt) {
+        return requestStream(type, prompt)
                 .collectList()
                 .map(this::combineChunks)
-                .retryWhen(Retry.backoff(AppConstants.API_RETRY_ATTEMPTS, 
-                        Duration.ofSeconds(AppConstants.API_RETRY_DELAY_SECONDS))
-                        .filter(throwable -> {
-                            // Проверяем различные типы сетевых ошибок
-                            String message = throwable.getMessage();
-                            String className = throwable.getClass().getName();
-                            
-                            // Connection reset ошибки
-                            if (message != null && (
-                                message.contains("Connection reset") ||
-                                message.contains("Connection reset by peer") ||
-                                message.contains("recvAddress")
-                            )) {
-                                return true;
-                            }
-                            
-                            // Закрытые каналы и SSL ошибки
-                            if (className.contains("ClosedChannelException") ||
-                                className.contains("NativeIoException") ||
-                                className.contains("SSLHandshakeException") ||
-                                className.contains("StacklessSSLHandshakeException")) {
-                                return true;
-                            }
-                            
-                            // Другие сетевые ошибки
-                            if (message != null && (
-                                message.contains("Connection closed") ||
-                                message.contains("Connection refused") ||
-                                message.contains("timeout")
-                            )) {
-                                return true;
-                            }
-                            
-                            return false;
-                        }))
+                .retryWhen(retryPolicy(type).filter(this::isRetryableNetworkError))
                 .onErrorResume(this::handleError);
     }
-    
-    private Map<String, Object> buildRequestBody(String questionText) {
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("messages", List.of(Map.of("role", "user", "content", questionText)));
-        requestBody.put("stream", true);
-        requestBody.put("model", "gpt-4.1-mini");
-        requestBody.put("temperature", AppConstants.API_TEMPERATURE);
-        requestBody.put("presence_penalty", 0);
-        requestBody.put("frequency_penalty", 0);
-        requestBody.put("top_p", 1);
-        requestBody.put("max_tokens", AppConstants.API_MAX_TOKENS);
-        return requestBody;
+
+    /**
+     * Возвращает ответ модели по мере генерации - поток текстовых фрагментов (delta).
+     * Повторный запрос при сетевой ошибке выполняется только пока не получено ни одного фрагмента,
+     * иначе пользователь увидел бы начало ответа дважды.
+     * Одновременные запросы одного вопроса разделяют один поток.
+     */
+    public Flux<String> streamAnswer(String questionText) {
+        return inFlight.joinStream(InFlightRequests.key("stream", questionText), () -> requestAnswerStream(questionText));
     }
-    
-    private String convertDataBufferToString(DataBuffer dataBuffer) {
-        byte[] bytes = new byte[dataBuffer.readableByteCount()];
-        dataBuffer.read(bytes);
-        DataBufferUtils.release(dataBuffer);
-        return new String(bytes, StandardCharsets.UTF_8);
+
+    private Flux<String> requestAnswerStream(String questionText) {
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            return requestStream(CallType.ANSWER, questionText)
+                    .doOnNext(chunk -> emitted.set(true))
+                    .retryWhen(retryPolicy(CallType.ANSWER)
+                            .filter(throwable -> !emitted.get() && isRetryableNetworkError(throwable)))
+                    .onErrorResume(error -> {
+                        logFailure("API stream failed", error);
+                        return Flux.just(emitted.get()
+                                ? STREAM_INTERRUPTED
+                                : networkErrorMessage(error));
+                    });
+        });
     }
-    
-    private Flux<String> splitIntoLines(String content) {
-        return Flux.fromArray(content.split("\r?\n"));
+
+    private RetryBackoffSpec retryPolicy(CallType type) {
+        GenerationProfile profile = router.profile(type);
+        return Retry.backoff(profile.retryAttempts(), profile.retryDelay());
     }
-    
-    private String removeAnsiCodes(String line) {
-        return line.replaceAll(ANSI_ESCAPE_REGEX, "").trim();
+
+    private Flux<String> requestStream(CallType type, String prompt) {
+        String logPrompt = prompt.length() > 50
+            ? prompt.substring(0, 50) + "..."
+            : prompt;
+        logger.debug("Sending {} request to LLM: {}", type, logPrompt);
+        // Провайдер, лимит и автомат защиты выбираются для каждой попытки, повторы тоже их проходят
+        return router.stream(type, prompt);
     }
-    
-    private Mono<String> parseStreamChunk(String line) {
-        String jsonData = line.substring(DATA_PREFIX.length()).trim();
+
+    private boolean isRetryableNetworkError(Throwable throwable) {
+        // Проверяем различные типы сетевых ошибок
+        String message = throwable.getMessage();
+        String className = throwable.getClass().getName();
         
-        if (DONE_MARKER.equals(jsonData) || jsonData.isEmpty()) {
-            return Mono.empty();
+        // Connection reset ошибки
+        if (message != null && (
+            message.contains("Connection reset") ||
+            message.contains("Connection reset by peer") ||
+            message.contains("recvAddress")
+        )) {
+            return true;
         }
         
-        // Проверяем, что JSON выглядит завершенным (хотя бы начинается и заканчивается правильно)
-        if (!jsonData.startsWith("{") || !jsonData.endsWith("}")) {
-            logger.debug("Skipping incomplete JSON chunk: {}", jsonData.length() > 100 ? jsonData.substring(0, 100) + "..." : jsonData);
-            return Mono.empty();
+        // Закрытые каналы и SSL ошибки
+        if (className.contains("ClosedChannelException") ||
+            className.contains("NativeIoException") ||
+            className.contains("SSLHandshakeException") ||
+            className.contains("StacklessSSLHandshakeException")) {
+            return true;
         }
         
-        try {
-            Map<String, Object> chunk = objectMapper.readValue(jsonData, Map.class);
-            
-            if (chunk.containsKey("error")) {
-                Map<String, Object> error = (Map<String, Object>) chunk.get("error");
-                String errorMsg = String.valueOf(error.get("message"));
-                logger.error("API returned error: {}", errorMsg);
-                return Mono.error(new RuntimeException("API Error: " + errorMsg));
-            }
-            
-            return extractContentFromChunk(chunk);
-        } catch (com.fasterxml.jackson.core.JsonParseException e) {
-            // JSON обрывается или невалидный - это нормально для потоков, просто пропускаем
-            logger.debug("Incomplete or invalid JSON chunk received, skipping: {}", jsonData.length() > 100 ? jsonData.substring(0, 100) + "..." : jsonData);
-            return Mono.empty();
-        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-            // Другие ошибки парсинга JSON - пропускаем чанк
-            logger.debug("Error parsing JSON chunk, skipping: {}", e.getMessage());
-            return Mono.empty();
-        } catch (RuntimeException e) {
-            return Mono.error(e);
-        } catch (Exception e) {
-            logger.warn("Unexpected error parsing stream chunk: {}", jsonData.length() > 100 ? jsonData.substring(0, 100) + "..." : jsonData, e);
-            return Mono.empty();
-        }
-    }
-    
-    @SuppressWarnings("unchecked")
-    private Mono<String> extractContentFromChunk(Map<String, Object> chunk) {
-        var choices = (List<Map<String, Object>>) chunk.get("choices");
-        if (choices != null && !choices.isEmpty()) {
-            var choice = choices.get(0);
-            var delta = (Map<String, Object>) choice.get("delta");
-            if (delta != null && delta.containsKey("content")) {
-                return Mono.just(String.valueOf(delta.get("content")));
-            }
+        // Другие сетевые ошибки
+        if (message != null && (
+            message.contains("Connection closed") ||
+            message.contains("Connection refused") ||
+            message.contains("timeout")
+        )) {
+            return true;
         }
-        return Mono.empty();
+        
+        return false;
     }
     
     private String combineChunks(List<String> chunks) {
@@ -209,15 +142,44 @@ public class WorkingApiService {
         String result = fullContent.toString();
         if (result.isEmpty()) {
             logger.warn("Empty response from stream");
-            return "❌ Не удалось получить ответ от API. Ответ пуст.";
+            return ERROR_MARK + " Не удалось получить ответ от API. Ответ пуст.";
         }
         logger.debug("Successfully received stream answer from API (length: {})", result.length());
         return result;
     }
     
     private Mono<String> handleError(Throwable error) {
-        logger.error("API request failed", error);
-        return Mono.just("❌ Ошибка сети при запросе к AI: " + error.getMessage());
+        logFailure("API request failed", error);
+        return Mono.just(networkErrorMessage(error));
+    }
+
+    private static void logFailure(String message, Throwable error) {
+        if (error instanceof UpstreamUnavailableException) {
+            // Отклонено без обращения к API: стек вызовов ничего не добавляет
+            logger.warn("{}: {}", message, error.getMessage());
+        } else {
+            logger.error(message, error);
+        }
+    }
+
+    /**
+     * Текст ошибки для пользователя; всегда начинается с ERROR_MARK, поэтому не сохраняется как ответ.
+     */
+    private static String networkErrorMessage(Throwable error) {
+        if (error instanceof UpstreamUnavailableException rejected) {
+            return rejected.getUserMessage();
+        }
+        return ERROR_MARK + " Ошибка сети при запросе к AI: " + error.getMessage();
+    }
+
+    /**
+     * Ошибки запроса возвращаются текстом для пользователя; такой ответ нельзя сохранять как эталонный.
+     */
+    public static boolean isFailedAnswer(String answer) {
+        return answer == null
+                || answer.isBlank()
+                || answer.startsWith(ERROR_MARK)
+                || answer.endsWith(STREAM_INTERRUPTED);
     }
 
     /**
@@ -234,7 +196,7 @@ public class WorkingApiService {
             questionText
         );
 
-        return getAnswer(prompt)
+        return complete(CallType.CLASSIFY, prompt)
             .map(response -> {
                 String lowerResponse = response.toLowerCase().trim();
                 // Проверяем различные варианты положительного ответа
@@ -243,18 +205,19 @@ public class WorkingApiService {
                        lowerResponse.startsWith("да") ||
                        lowerResponse.startsWith("yes");
             })
-            .timeout(Duration.ofSeconds(10))
             .onErrorReturn(true); // В случае ошибки разрешаем вопрос, чтобы не блокировать пользователя
     }
     
     /**
-     * Оценивает ответ пользователя по 10-бальной шкале и предоставляет дополнения
+     * Оценивает ответ пользователя по 10-бальной шкале и предоставляет дополнения.
+     * Модель отвечает JSON-объектом, который разбирается по мере генерации; после закрывающей
+     * скобки поток больше не читается. Если ответ оборвался после оценки, возвращается то, что пришло.
      * @param questionText Текст вопроса
      * @param userAnswerText Ответ пользователя
-     * @return Mono с оценкой и дополнениями
+     * @return Mono с оценкой и дополнениями; если оценку получить не удалось, Mono завершается ошибкой,
+     *         а не подставной оценкой, чтобы она не попала в сессию и историю ответов
      */
-    public Mono<com.github.puhlikov.interviewbot.model.AnswerEvaluation> evaluateAnswer(
-            String questionText, String userAnswerText) {
+    public Mono<AnswerEvaluation> evaluateAnswer(String questionText, String userAnswerText) {
         String prompt = String.format(
             "Вопрос: %s\n\nОтвет пользователя: %s\n\n" +
             "Оцени ответ пользователя по 10-бальной шкале, где:\n" +
@@ -263,85 +226,27 @@ public class WorkingApiService {
             "- 5-6: Частично верный ответ с некоторыми неточностями\n" +
             "- 7-8: Верный ответ с небольшими недочетами\n" +
             "- 9-10: Полностью верный и полный ответ\n\n" +
-            "Ответь в следующем формате (строго соблюдай формат):\n" +
-            "ОЦЕНКА: [число от 0 до 10]\n" +
-            "ДОПОЛНЕНИЯ: [что не было упомянуто в ответе пользователя, что можно добавить или улучшить. " +
-            "Если ответ полный и верный (9-10), напиши 'Ответ полный и верный'. " +
-            "Если ответ неверный, укажи основные ошибки и что нужно исправить]",
+            "Ответь только JSON-объектом без пояснений и markdown, поля строго в таком порядке:\n" +
+            "{\"score\": <целое число от 0 до 10>, " +
+            "\"mistakes\": \"<основные ошибки в ответе или пустая строка>\", " +
+            "\"missing\": \"<что не упомянуто и что можно добавить или пустая строка>\"}",
             questionText, userAnswerText
         );
 
-        return getAnswer(prompt)
-                .map(response -> parseEvaluationResponse(response))
-                .onErrorReturn(new com.github.puhlikov.interviewbot.model.AnswerEvaluation(
-                    AppConstants.DEFAULT_SCORE_ON_ERROR, 
-                    "Не удалось оценить ответ. Попробуйте еще раз."));
+        return inFlight.join(InFlightRequests.key("evaluate", prompt), () -> requestEvaluation(prompt))
+                .doOnError(error -> logFailure("Answer evaluation failed", error));
     }
-    
-    private com.github.puhlikov.interviewbot.model.AnswerEvaluation parseEvaluationResponse(String response) {
-        try {
-            int score = AppConstants.DEFAULT_SCORE_ON_ERROR;
-            String feedback = "";
-            
-            // Извлекаем оценку
-            String[] lines = response.split("\n");
-            for (String line : lines) {
-                if (line.trim().startsWith("ОЦЕНКА:") || line.trim().startsWith("ОЦЕНКА")) {
-                    String scoreStr = line.replaceAll("ОЦЕНКА:?", "").trim().replaceAll("[^0-9]", "");
-                    if (!scoreStr.isEmpty()) {
-                        score = Integer.parseInt(scoreStr);
-                        score = Math.max(AppConstants.MIN_SCORE, Math.min(AppConstants.MAX_SCORE, score));
-                    }
-                } else if (line.trim().startsWith("ДОПОЛНЕНИЯ:") || line.trim().startsWith("ДОПОЛНЕНИЯ")) {
-                    feedback = line.replaceAll("ДОПОЛНЕНИЯ:?", "").trim();
-                }
-            }
-            
-            // Если не нашли в формате, пытаемся извлечь число из всего ответа
-            if (score == AppConstants.DEFAULT_SCORE_ON_ERROR && feedback.isEmpty()) {
-                String cleaned = response.trim().replaceAll("[^0-9]", "");
-                if (!cleaned.isEmpty()) {
-                    score = Integer.parseInt(cleaned);
-                    score = Math.max(AppConstants.MIN_SCORE, Math.min(AppConstants.MAX_SCORE, score));
-                }
-                // Берем весь ответ как дополнения (кроме числа)
-                feedback = response.replaceAll("\\d+", "").trim();
-                if (feedback.length() > 500) {
-                    feedback = feedback.substring(0, 500) + "...";
-                }
-            }
-            
-            // Если дополнения не найдены, но есть текст после оценки
-            if (feedback.isEmpty() && response.length() > 20) {
-                // Пытаемся найти текст после "ОЦЕНКА" или числа
-                String[] parts = response.split("(ОЦЕНКА|\\d+)", 2);
-                if (parts.length > 1) {
-                    feedback = parts[1].trim();
-                    if (feedback.length() > 500) {
-                        feedback = feedback.substring(0, 500) + "...";
-                    }
-                }
-            }
-            
-            // Если все еще нет дополнений, используем дефолтное сообщение
-            if (feedback.isEmpty()) {
-                if (score >= 9) {
-                    feedback = "Ответ полный и верный!";
-                } else if (score >= 7) {
-                    feedback = "Ответ верный, но можно добавить больше деталей.";
-                } else if (score >= 5) {
-                    feedback = "Ответ частично верный, но есть неточности и неполнота.";
-                } else {
-                    feedback = "Ответ требует значительных улучшений и дополнений.";
-                }
-            }
-            
-            return new com.github.puhlikov.interviewbot.model.AnswerEvaluation(score, feedback);
-        } catch (Exception e) {
-            logger.warn("Failed to parse evaluation response: {}", response, e);
-            return new com.github.puhlikov.interviewbot.model.AnswerEvaluation(
-                AppConstants.DEFAULT_SCORE_ON_ERROR, 
-                "Не удалось обработать оценку. Попробуйте еще раз.");
-        }
+
+    private Mono<AnswerEvaluation> requestEvaluation(String prompt) {
+        return Mono.defer(() -> {
+                    EvaluationJsonParser parser = new EvaluationJsonParser();
+                    return LlmUpstreamGuard.takeUntilComplete(requestStream(CallType.EVALUATE, prompt), parser::feed)
+                            .then(Mono.fromCallable(parser::toEvaluation))
+                            .onErrorResume(error -> !(error instanceof MalformedEvaluationException) && parser.hasScore()
+                                    ? Mono.fromCallable(parser::toEvaluation)
+                                    : Mono.error(error));
+                })
+                .doOnError(MalformedEvaluationException.class, error -> malformedEvaluations.increment())
+                .retryWhen(retryPolicy(CallType.EVALUATE).filter(this::isRetryableNetworkError));
     }
 }
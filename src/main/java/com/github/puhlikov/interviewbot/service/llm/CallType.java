@@ -0,0 +1,13 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+/**
+ * Тип обращения к модели: для каждого задается свой маршрут по провайдерам.
+ */
+public enum CallType {
+    /** Эталонный ответ на вопрос */
+    ANSWER,
+    /** Оценка ответа пользователя */
+    EVALUATE,
+    /** Проверка, что вопрос относится к IT */
+    CLASSIFY
+}
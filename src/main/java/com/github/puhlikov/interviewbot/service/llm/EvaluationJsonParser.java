@@ -0,0 +1,183 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.github.puhlikov.interviewbot.bot.constants.AppConstants;
+import com.github.puhlikov.interviewbot.model.AnswerEvaluation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Потоковый разбор оценки в формате {"score": 0..10, "missing": "...", "mistakes": "..."}.
+ * Фрагменты ответа подаются по мере генерации в неблокирующий парсер Jackson, без склейки
+ * в одну строку; текст до первой "{" (например, ```json) пропускается. После закрывающей "}"
+ * разбор завершен и остаток ответа можно не читать.
+ * Экземпляр рассчитан на один ответ и не потокобезопасен.
+ */
+public class EvaluationJsonParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean complete;
+    private int depth;
+    private String field;
+    private Integer score;
+    private final StringBuilder missing = new StringBuilder();
+    private final StringBuilder mistakes = new StringBuilder();
+
+    public EvaluationJsonParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * @return true, когда объект оценки прочитан целиком
+     * @throws MalformedEvaluationException если ответ не является JSON нужного вида
+     */
+    public boolean feed(String chunk) {
+        if (complete) {
+            return true;
+        }
+        if (!started) {
+            int start = chunk.indexOf('{');
+            if (start < 0) {
+                return false;
+            }
+            started = true;
+            chunk = chunk.substring(start);
+        }
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            readAvailableTokens();
+        } catch (IOException e) {
+            throw new MalformedEvaluationException("Invalid evaluation JSON: " + e.getMessage(), e);
+        }
+        return complete;
+    }
+
+    public boolean hasScore() {
+        return score != null;
+    }
+
+    /**
+     * Итог разбора; при оборванном ответе возвращает то, что успело прийти, если есть оценка.
+     *
+     * @throws MalformedEvaluationException если оценки в ответе нет
+     */
+    public AnswerEvaluation toEvaluation() {
+        if (score == null) {
+            throw new MalformedEvaluationException(started
+                    ? "Evaluation JSON has no score"
+                    : "Evaluation reply is not JSON");
+        }
+        return new AnswerEvaluation(score, feedback());
+    }
+
+    private void readAvailableTokens() throws IOException {
+        JsonToken token;
+        while (!complete && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> {
+                    depth--;
+                    if (depth == 0) {
+                        complete = true;
+                        feeder.endOfInput();
+                    }
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        field = parser.currentName();
+                    }
+                }
+                default -> readValue(token);
+            }
+        }
+    }
+
+    private void readValue(JsonToken token) throws IOException {
+        if (depth == 1 && "score".equals(field)) {
+            score = switch (token) {
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> clampScore((int) Math.round(parser.getDoubleValue()));
+                case VALUE_STRING -> clampScore(parseScore(parser.getText()));
+                default -> throw new MalformedEvaluationException("Evaluation score is not a number: " + token);
+            };
+        } else if (token == JsonToken.VALUE_STRING && isFeedbackPosition()
+                && ("missing".equals(field) || "mistakes".equals(field))) {
+            // Поле может быть строкой или массивом строк
+            StringBuilder target = "missing".equals(field) ? missing : mistakes;
+            String text = parser.getText().strip();
+            if (!text.isEmpty()) {
+                if (!target.isEmpty()) {
+                    target.append('\n');
+                }
+                target.append(text);
+            }
+        }
+    }
+
+    private boolean isFeedbackPosition() {
+        return depth == 1 || (depth == 2 && parser.getParsingContext().inArray());
+    }
+
+    private static int parseScore(String text) {
+        try {
+            return Integer.parseInt(text.strip());
+        } catch (NumberFormatException e) {
+            throw new MalformedEvaluationException("Evaluation score is not a number: " + text, e);
+        }
+    }
+
+    private static int clampScore(int score) {
+        return Math.max(AppConstants.MIN_SCORE, Math.min(AppConstants.MAX_SCORE, score));
+    }
+
+    private String feedback() {
+        StringBuilder feedback = new StringBuilder();
+        if (!mistakes.isEmpty()) {
+            feedback.append("Ошибки: ").append(mistakes);
+        }
+        if (!missing.isEmpty()) {
+            if (!feedback.isEmpty()) {
+                feedback.append("\n\n");
+            }
+            feedback.append("Не хватает: ").append(missing);
+        }
+        if (!feedback.isEmpty()) {
+            return feedback.toString();
+        }
+        if (score >= 9) {
+            return "Ответ полный и верный!";
+        } else if (score >= 7) {
+            return "Ответ верный, но можно добавить больше деталей.";
+        } else if (score >= 5) {
+            return "Ответ частично верный, но есть неточности и неполнота.";
+        }
+        return "Ответ требует значительных улучшений и дополнений.";
+    }
+
+    /**
+     * Ответ модели не соответствует формату оценки.
+     */
+    public static class MalformedEvaluationException extends RuntimeException {
+        public MalformedEvaluationException(String message) {
+            super(message);
+        }
+
+        public MalformedEvaluationException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
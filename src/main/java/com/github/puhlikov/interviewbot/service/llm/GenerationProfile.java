@@ -0,0 +1,25 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import java.time.Duration;
+
+/**
+ * Параметры генерации для одного типа обращения к модели.
+ *
+ * @param maxTokens     предел длины ответа
+ * @param temperature   температура генерации
+ * @param timeout       предел времени одной попытки; по истечении соединение закрывается
+ * @param retryAttempts сколько раз повторить попытку при сетевой ошибке
+ * @param retryDelay    начальная задержка повтора (дальше растет экспоненциально)
+ * @param streaming     получать ответ потоком фрагментов, если провайдер это умеет
+ * @param hedge         запускать дублирующую попытку, если первая долго не дает первый фрагмент
+ */
+public record GenerationProfile(
+        int maxTokens,
+        double temperature,
+        Duration timeout,
+        int retryAttempts,
+        Duration retryDelay,
+        boolean streaming,
+        boolean hedge
+) {
+}
@@ -0,0 +1,87 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.github.puhlikov.interviewbot.bot.constants.AppConstants;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Профили генерации по типам обращений: bot.llm.profiles.answer / evaluate / classify.
+ * Для типа без профиля в настройках используется встроенный.
+ * Там же ограничения дублирующих попыток (bot.llm.hedge.*) для профилей с hedge=true.
+ */
+@ConfigurationProperties(prefix = "bot.llm")
+public class GenerationProfiles {
+
+    private static final Map<CallType, GenerationProfile> DEFAULTS = Map.of(
+            CallType.ANSWER, new GenerationProfile(AppConstants.API_MAX_TOKENS, AppConstants.API_TEMPERATURE,
+                    Duration.ofMinutes(AppConstants.API_RESPONSE_TIMEOUT_MINUTES),
+                    AppConstants.API_RETRY_ATTEMPTS, Duration.ofSeconds(AppConstants.API_RETRY_DELAY_SECONDS), true, false),
+            CallType.EVALUATE, new GenerationProfile(600, 0.2, Duration.ofSeconds(60),
+                    AppConstants.API_RETRY_ATTEMPTS, Duration.ofSeconds(AppConstants.API_RETRY_DELAY_SECONDS), true, true),
+            CallType.CLASSIFY, new GenerationProfile(5, 0.0, Duration.ofSeconds(8),
+                    0, Duration.ofMillis(500), false, true));
+
+    private Map<CallType, GenerationProfile> profiles = new EnumMap<>(CallType.class);
+    private Hedge hedge = new Hedge();
+
+    public static GenerationProfiles defaults() {
+        return new GenerationProfiles();
+    }
+
+    public GenerationProfile forCall(CallType type) {
+        GenerationProfile profile = profiles.get(type);
+        return profile != null ? profile : DEFAULTS.get(type);
+    }
+
+    public Map<CallType, GenerationProfile> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Map<CallType, GenerationProfile> profiles) {
+        this.profiles = profiles;
+    }
+
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Hedge hedge) {
+        this.hedge = hedge;
+    }
+
+    public static class Hedge {
+        /** Доля запросов, для которых можно запустить дубль */
+        private double maxRatio = 0.05;
+        /** Дубль не запускается раньше этой задержки, даже если p95 меньше */
+        private Duration minDelay = Duration.ofMillis(300);
+        /** Сколько замеров задержки нужно, чтобы p95 провайдера считался надежным */
+        private long minSamples = 20;
+
+        public double getMaxRatio() {
+            return maxRatio;
+        }
+
+        public void setMaxRatio(double maxRatio) {
+            this.maxRatio = maxRatio;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public long getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(long minSamples) {
+            this.minSamples = minSamples;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.puhlikov.interviewbot.bot.constants.AppConstants;
+import com.github.puhlikov.interviewbot.service.sse.ChatCompletionStreamDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SSE-эндпоинт chat.gpt-chatbot.ru: ответ приходит потоком фрагментов.
+ */
+@Component
+public class GptChatbotProvider implements LlmProvider {
+
+    public static final String NAME = "gpt-chatbot";
+
+    private static final String API_BASE_URL = "https://chat.gpt-chatbot.ru";
+    private static final String API_ENDPOINT = "/api/openai/v1/chat/completions";
+    private static final String MODEL = "gpt-4.1-mini";
+
+    private final WebClient client;
+
+    public GptChatbotProvider() {
+        HttpClient httpClient = HttpClient.create()
+                .responseTimeout(Duration.ofMinutes(AppConstants.API_RESPONSE_TIMEOUT_MINUTES))
+                .keepAlive(true)
+                .followRedirect(true);
+
+        this.client = WebClient.builder()
+                .baseUrl(API_BASE_URL)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> configurer.defaultCodecs()
+                    .maxInMemorySize(AppConstants.API_MAX_IN_MEMORY_SIZE_MB * 1024 * 1024))
+                .defaultHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.0.0 YaBrowser/25.8.0.0 Safari/537.36")
+                .defaultHeader("Accept", "application/json, text/event-stream")
+                .defaultHeader("Accept-Language", "ru,en;q=0.9,la;q=0.8,sr;q=0.7,bg;q=0.6")
+                .defaultHeader("Content-Type", "application/json")
+                .defaultHeader("Referer", "https://chat.gpt-chatbot.ru/")
+                .defaultHeader("Origin", "https://chat.gpt-chatbot.ru")
+                .defaultHeader("Priority", "u=1, i")
+                .defaultHeader("Sec-Fetch-Dest", "empty")
+                .defaultHeader("Sec-Fetch-Mode", "cors")
+                .defaultHeader("Sec-Fetch-Site", "same-origin")
+                .defaultHeader("Sec-CH-UA", "\"Not)A;Brand\";v=\"8\", \"Chromium\";v=\"138\", \"YaBrowser\";v=\"25.8\", \"Yowser\";v=\"2.5\"")
+                .defaultHeader("Sec-CH-UA-Mobile", "?0")
+                .defaultHeader("Sec-CH-UA-Platform", "\"Linux\"")
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+        var response = client.post()
+                .uri(API_ENDPOINT)
+                .bodyValue(buildRequestBody(profile, prompt))
+                .retrieve();
+        if (!profile.streaming()) {
+            // Короткие ответы (ДА/НЕТ) дешевле получить одним JSON без разбора SSE
+            return response.bodyToMono(JsonNode.class)
+                    .flatMap(OpenAiCompatibleProvider::extractContent)
+                    .flux();
+        }
+        return response.bodyToFlux(DataBuffer.class)
+                .transform(GptChatbotProvider::decodeStream);
+    }
+
+    /**
+     * Разбирает SSE-поток побайтово: строки, разрезанные границей буфера, склеиваются до разбора JSON.
+     */
+    private static Flux<String> decodeStream(Flux<DataBuffer> buffers) {
+        return Flux.defer(() -> {
+            ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+            return buffers
+                    .concatMapIterable(decoder::decode)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.finish())))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    private static Map<String, Object> buildRequestBody(GenerationProfile profile, String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+        requestBody.put("stream", profile.streaming());
+        requestBody.put("model", MODEL);
+        requestBody.put("temperature", profile.temperature());
+        requestBody.put("presence_penalty", 0);
+        requestBody.put("frequency_penalty", 0);
+        requestBody.put("top_p", 1);
+        requestBody.put("max_tokens", profile.maxTokens());
+        return requestBody;
+    }
+}
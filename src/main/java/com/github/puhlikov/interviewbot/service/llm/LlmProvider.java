@@ -0,0 +1,28 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Провайдер языковой модели. Ответ возвращается потоком текстовых фрагментов; провайдер без
+ * потоковой генерации отдает весь ответ одним фрагментом. Ошибки не перехватываются -
+ * повторы и переключение на другой провайдер выполняет {@link LlmRouter}.
+ */
+public interface LlmProvider {
+
+    /**
+     * Имя для маршрутов (bot.llm.routes.*) и тега метрик
+     */
+    String name();
+
+    /**
+     * Провайдер без настроек (например, без ключа API) в маршруты не попадает.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Ограничение времени попытки по {@link GenerationProfile#timeout()} применяет {@link LlmRouter}.
+     */
+    Flux<String> stream(CallType type, GenerationProfile profile, String prompt);
+}
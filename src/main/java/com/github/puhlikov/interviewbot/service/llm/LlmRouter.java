@@ -0,0 +1,299 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.github.puhlikov.interviewbot.service.resilience.HedgeBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Выбор провайдера для обращения к модели. Для каждого типа обращения задан список провайдеров;
+ * первый выбирается случайно с весом, обратным средней задержке до первого фрагмента
+ * (медленные провайдеры получают мало запросов, но их задержка продолжает измеряться),
+ * остальные пробуются по возрастанию задержки, если предыдущий отказал до первого фрагмента.
+ * Каждый провайдер защищен своим {@link LlmUpstreamGuard}, поэтому отклоненный запрос
+ * сразу уходит к следующему провайдеру.
+ *
+ * Задержки учитываются отдельно по провайдеру и типу обращения: у непотокового провайдера
+ * первый фрагмент - весь ответ, и длинные ответы не должны влиять на короткие оценки и проверки.
+ *
+ * <p>Для профилей с hedge=true, если первая попытка не дала фрагмент за p95 задержки провайдера,
+ * запускается дублирующая (на следующем провайдере, а если он один - на новом соединении);
+ * ответ берется из той, что ответит первой, вторая отменяется. Число дублей ограничено
+ * {@link HedgeBudget}.
+ */
+public class LlmRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmRouter.class);
+
+    // Вес нового замера в скользящем среднем задержки
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double INITIAL_LATENCY_MS = 1000.0;
+
+    private final Map<CallType, List<Route>> routes = new EnumMap<>(CallType.class);
+    private final Map<CallType, Counter> failovers = new EnumMap<>(CallType.class);
+    private final DoubleSupplier random;
+    private final GenerationProfiles profiles;
+    private final HedgeBudget hedgeBudget;
+    private final Map<CallType, Counter> hedgesLaunched = new EnumMap<>(CallType.class);
+    private final Map<CallType, Counter> hedgesWon = new EnumMap<>(CallType.class);
+    private final Map<CallType, Counter> hedgesThrottled = new EnumMap<>(CallType.class);
+
+    /**
+     * @param routeNames   имена провайдеров по типам обращений; тип без маршрута использует всех провайдеров
+     * @param guardFactory защита для каждого провайдера
+     */
+    public LlmRouter(List<? extends LlmProvider> providers, Map<CallType, List<String>> routeNames,
+                     GenerationProfiles profiles, Function<LlmProvider, LlmUpstreamGuard> guardFactory,
+                     MeterRegistry meterRegistry) {
+        this(providers, routeNames, profiles, guardFactory, meterRegistry,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    LlmRouter(List<? extends LlmProvider> providers, Map<CallType, List<String>> routeNames,
+              GenerationProfiles profiles, Function<LlmProvider, LlmUpstreamGuard> guardFactory,
+              MeterRegistry meterRegistry, DoubleSupplier random) {
+        this.profiles = profiles;
+        this.random = random;
+        this.hedgeBudget = new HedgeBudget(profiles.getHedge().getMaxRatio(), 10);
+        Map<String, Route> enabled = new LinkedHashMap<>();
+        for (LlmProvider provider : providers) {
+            if (provider.isEnabled()) {
+                enabled.put(provider.name(), new Route(provider, guardFactory.apply(provider), meterRegistry));
+            }
+        }
+        if (enabled.isEmpty()) {
+            throw new IllegalStateException("No LLM provider is enabled");
+        }
+        for (CallType type : CallType.values()) {
+            List<Route> route = new ArrayList<>();
+            for (String name : routeNames.getOrDefault(type, List.of())) {
+                Route candidate = enabled.get(name);
+                if (candidate == null) {
+                    logger.warn("LLM provider '{}' in {} route is unknown or disabled, skipping", name, type);
+                } else if (!route.contains(candidate)) {
+                    route.add(candidate);
+                }
+            }
+            if (route.isEmpty()) {
+                route.addAll(enabled.values());
+            }
+            routes.put(type, List.copyOf(route));
+            failovers.put(type, Counter.builder("bot.llm.failovers")
+                    .description("LLM requests retried on another provider after a failure")
+                    .tag("call", type.name().toLowerCase())
+                    .register(meterRegistry));
+            hedgesLaunched.put(type, hedgeCounter(meterRegistry, type, "launched"));
+            hedgesWon.put(type, hedgeCounter(meterRegistry, type, "won"));
+            hedgesThrottled.put(type, hedgeCounter(meterRegistry, type, "throttled"));
+            logger.info("LLM route for {}: {}", type, route.stream().map(r -> r.provider.name()).toList());
+        }
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, CallType type, String result) {
+        return Counter.builder("bot.llm.hedges")
+                .description("Hedged LLM attempts: launched, answered first, or skipped by the hedge budget")
+                .tag("call", type.name().toLowerCase())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public GenerationProfile profile(CallType type) {
+        return profiles.forCall(type);
+    }
+
+    /**
+     * Поток фрагментов ответа. После первого фрагмента провайдер не меняется:
+     * пользователь не должен получить начало ответа от двух разных моделей.
+     * Каждая попытка ограничена временем из профиля типа обращения.
+     */
+    public Flux<String> stream(CallType type, String prompt) {
+        GenerationProfile profile = profiles.forCall(type);
+        return Flux.defer(() -> {
+            List<Route> candidates = order(type, routes.get(type));
+            Flux<String> primary = attempt(type, profile, candidates, 0, prompt);
+            if (!profile.hedge()) {
+                return primary;
+            }
+            hedgeBudget.onRequest();
+            Duration delay = hedgeDelay(candidates.get(0).latency(type));
+            return delay == null ? primary : hedged(type, profile, candidates, primary, delay, prompt);
+        });
+    }
+
+    private Flux<String> hedged(CallType type, GenerationProfile profile, List<Route> candidates,
+                                Flux<String> primary, Duration delay, String prompt) {
+        // Дубль начинает со следующего провайдера, первый провайдер остается последним запасным
+        List<Route> hedgeCandidates = new ArrayList<>(candidates.subList(1, candidates.size()));
+        hedgeCandidates.add(candidates.get(0));
+        // Если первая попытка уже завершилась ошибкой, дубль не нужен: ошибка возвращается сразу
+        Sinks.Empty<Void> primaryFailed = Sinks.empty();
+        AtomicBoolean hedgeAnswered = new AtomicBoolean();
+        Flux<String> hedge = Mono.delay(delay)
+                .takeUntilOther(primaryFailed.asMono())
+                .filter(tick -> {
+                    if (hedgeBudget.tryAcquire()) {
+                        hedgesLaunched.get(type).increment();
+                        return true;
+                    }
+                    hedgesThrottled.get(type).increment();
+                    return false;
+                })
+                .flatMapMany(tick -> attempt(type, profile, hedgeCandidates, 0, prompt))
+                .doOnNext(chunk -> {
+                    if (hedgeAnswered.compareAndSet(false, true)) {
+                        hedgesWon.get(type).increment();
+                    }
+                });
+        return Flux.firstWithValue(primary.doOnError(error -> primaryFailed.tryEmitEmpty()), hedge)
+                .onErrorMap(NoSuchElementException.class, LlmRouter::firstCause);
+    }
+
+    /**
+     * Если ни одна попытка не дала ответ, возвращаем исходную ошибку, а не общую от firstWithValue.
+     */
+    private static Throwable firstCause(NoSuchElementException error) {
+        if (error.getCause() == null) {
+            return error;
+        }
+        return Exceptions.unwrapMultiple(error.getCause()).stream()
+                .filter(cause -> !(cause instanceof NoSuchElementException))
+                .findFirst()
+                .orElse(error);
+    }
+
+    /**
+     * @return задержка перед дублем или null, если замеров провайдера пока мало
+     */
+    private Duration hedgeDelay(Latency latency) {
+        GenerationProfiles.Hedge settings = profiles.getHedge();
+        if (latency.firstChunk.count() < settings.getMinSamples()) {
+            return null;
+        }
+        double p95Ms = latency.firstChunk.takeSnapshot().percentileValues()[0].value(TimeUnit.MILLISECONDS);
+        if (p95Ms <= 0) {
+            return null;
+        }
+        Duration p95 = Duration.ofMillis((long) Math.ceil(p95Ms));
+        return p95.compareTo(settings.getMinDelay()) < 0 ? settings.getMinDelay() : p95;
+    }
+
+    private Flux<String> attempt(CallType type, GenerationProfile profile, List<Route> candidates, int index,
+                                 String prompt) {
+        Route route = candidates.get(index);
+        AtomicBoolean emitted = new AtomicBoolean();
+        long startedAt = System.nanoTime();
+        return route.guard.guard(route.provider.stream(type, profile, prompt).timeout(profile.timeout()))
+                .doOnNext(chunk -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        route.latency(type).record(System.nanoTime() - startedAt);
+                    }
+                })
+                .onErrorResume(error -> {
+                    if (emitted.get() || index + 1 >= candidates.size()) {
+                        return Flux.error(error);
+                    }
+                    Route next = candidates.get(index + 1);
+                    logger.warn("LLM provider {} failed for {}, switching to {}: {}",
+                            route.provider.name(), type, next.provider.name(), error.getMessage());
+                    failovers.get(type).increment();
+                    return attempt(type, profile, candidates, index + 1, prompt);
+                });
+    }
+
+    private List<Route> order(CallType type, List<Route> route) {
+        if (route.size() == 1) {
+            return route;
+        }
+        List<Route> ordered = new ArrayList<>(route);
+        ordered.sort(Comparator.comparingDouble(r -> r.latency(type).latencyMs));
+        double totalWeight = 0;
+        for (Route r : ordered) {
+            totalWeight += r.latency(type).weight();
+        }
+        double pick = random.getAsDouble() * totalWeight;
+        for (int i = 0; i < ordered.size(); i++) {
+            pick -= ordered.get(i).latency(type).weight();
+            if (pick < 0) {
+                ordered.add(0, ordered.remove(i));
+                break;
+            }
+        }
+        return ordered;
+    }
+
+    List<String> providerNames(CallType type) {
+        return routes.get(type).stream().map(r -> r.provider.name()).toList();
+    }
+
+    double latencyMs(String provider, CallType type) {
+        return routes.get(type).stream()
+                .filter(r -> r.provider.name().equals(provider))
+                .findFirst()
+                .map(r -> r.latency(type).latencyMs)
+                .orElseThrow();
+    }
+
+    private static final class Route {
+        private final LlmProvider provider;
+        private final LlmUpstreamGuard guard;
+        private final Map<CallType, Latency> latencies = new EnumMap<>(CallType.class);
+
+        Route(LlmProvider provider, LlmUpstreamGuard guard, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.guard = guard;
+            for (CallType type : CallType.values()) {
+                latencies.put(type, new Latency(provider, type, meterRegistry));
+            }
+        }
+
+        Latency latency(CallType type) {
+            return latencies.get(type);
+        }
+    }
+
+    /**
+     * Задержка до первого фрагмента у одного провайдера для одного типа обращения.
+     */
+    private static final class Latency {
+        private final Timer firstChunk;
+        private volatile double latencyMs = INITIAL_LATENCY_MS;
+
+        Latency(LlmProvider provider, CallType type, MeterRegistry meterRegistry) {
+            this.firstChunk = Timer.builder("bot.llm.provider.first-chunk")
+                    .description("Time from LLM request to the first chunk of the answer")
+                    .tag("provider", provider.name())
+                    .tag("call", type.name().toLowerCase())
+                    .publishPercentiles(0.95)
+                    .register(meterRegistry);
+        }
+
+        double weight() {
+            return 1.0 / Math.max(1.0, latencyMs);
+        }
+
+        synchronized void record(long nanos) {
+            firstChunk.record(nanos, TimeUnit.NANOSECONDS);
+            latencyMs += LATENCY_SMOOTHING * (nanos / 1_000_000.0 - latencyMs);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.github.puhlikov.interviewbot.bot.constants.Messages;
+import com.github.puhlikov.interviewbot.exception.UpstreamUnavailableException;
+import com.github.puhlikov.interviewbot.service.resilience.AdaptiveConcurrencyLimiter;
+import com.github.puhlikov.interviewbot.service.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Защита API модели от перегрузки: адаптивный лимит одновременных запросов и автомат защиты.
+ * Задержка запроса - время до первого фрагмента ответа, так длина ответа не влияет на лимит.
+ * Отклоненный запрос сразу завершается {@link UpstreamUnavailableException}.
+ * У каждого провайдера свой экземпляр, метрики помечены тегом provider.
+ */
+public class LlmUpstreamGuard {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    // Ключ контекста подписки: флаг поднимается, когда потребитель получил все нужное и отменил поток сам
+    private static final String CONSUMER_DONE = LlmUpstreamGuard.class.getName() + ".consumerDone";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker breaker;
+    private final Counter rejectedByLimit;
+    private final Counter rejectedByCircuit;
+
+    public LlmUpstreamGuard(String provider, int initialLimit, int minLimit, int maxLimit,
+                            long latencyThresholdMs, int failureThreshold, long openMs,
+                            MeterRegistry meterRegistry) {
+        this(new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                        Duration.ofMillis(latencyThresholdMs).toNanos(), BACKOFF_RATIO),
+                new CircuitBreaker(failureThreshold, Duration.ofMillis(openMs).toNanos()),
+                provider, meterRegistry);
+    }
+
+    LlmUpstreamGuard(AdaptiveConcurrencyLimiter limiter, CircuitBreaker breaker, String provider,
+                     MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.rejectedByLimit = rejectedCounter(meterRegistry, provider, "limit");
+        this.rejectedByCircuit = rejectedCounter(meterRegistry, provider, "circuit_open");
+
+        Gauge.builder("bot.llm.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of concurrent LLM requests")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("bot.llm.limiter.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("LLM requests currently holding a limiter permit")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("bot.llm.circuit.state", breaker, b -> b.getState().ordinal())
+                .description("LLM circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String provider, String reason) {
+        return Counter.builder("bot.llm.rejected")
+                .description("LLM requests rejected without calling the API")
+                .tag("provider", provider)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Читает поток до фрагмента, после которого ответ полон, и отменяет остаток.
+     * В отличие от обычной отмены такое завершение учитывается защитой как успешный запрос.
+     */
+    public static <T> Flux<T> takeUntilComplete(Flux<T> response, Predicate<? super T> lastChunk) {
+        return Flux.defer(() -> {
+            AtomicBoolean done = new AtomicBoolean();
+            return response
+                    .takeUntil(chunk -> {
+                        boolean last = lastChunk.test(chunk);
+                        if (last) {
+                            done.set(true);
+                        }
+                        return last;
+                    })
+                    .contextWrite(Context.of(CONSUMER_DONE, done));
+        });
+    }
+
+    /**
+     * Выполняет запрос, если его пропускают автомат защиты и лимит; результат запроса
+     * учитывается в обоих. Отмена подписки не считается ни успехом, ни ошибкой,
+     * кроме отмены из {@link #takeUntilComplete} после полного ответа.
+     */
+    public <T> Flux<T> guard(Flux<T> request) {
+        return Flux.deferContextual(context -> {
+            AtomicBoolean consumerDone = context.getOrDefault(CONSUMER_DONE, null);
+            if (!breaker.tryAcquirePermission()) {
+                rejectedByCircuit.increment();
+                return Flux.error(new UpstreamUnavailableException(
+                        Messages.AI_UNAVAILABLE, "LLM circuit breaker is open"));
+            }
+            if (!limiter.tryAcquire()) {
+                breaker.onIgnored();
+                rejectedByLimit.increment();
+                return Flux.error(new UpstreamUnavailableException(
+                        Messages.AI_OVERLOADED, "LLM concurrency limit reached"));
+            }
+            long startedAt = System.nanoTime();
+            AtomicLong firstChunkLatency = new AtomicLong(-1L);
+            return request
+                    .doOnNext(chunk -> firstChunkLatency.compareAndSet(-1L, System.nanoTime() - startedAt))
+                    .doFinally(signal -> {
+                        boolean completedByConsumer = signal == SignalType.CANCEL
+                                && consumerDone != null && consumerDone.get();
+                        if (signal == SignalType.ON_COMPLETE || completedByConsumer) {
+                            long latency = firstChunkLatency.get();
+                            limiter.onSuccess(latency >= 0 ? latency : System.nanoTime() - startedAt);
+                            breaker.onSuccess();
+                        } else if (signal == SignalType.ON_ERROR) {
+                            limiter.onDropped();
+                            breaker.onFailure();
+                        } else {
+                            limiter.onIgnored();
+                            breaker.onIgnored();
+                        }
+                    });
+        });
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI-совместимый эндпоинт без потоковой генерации (по умолчанию OpenRouter),
+ * флаг streaming профиля не учитывается.
+ * Включается, только если задан ключ API.
+ */
+@Component
+public class OpenAiCompatibleProvider implements LlmProvider {
+
+    public static final String NAME = "openai";
+
+    private final WebClient client;
+    private final String apiKey;
+    private final String model;
+
+    public OpenAiCompatibleProvider(
+            @Value("${bot.llm.openai.base-url:https://openrouter.ai/api/v1}") String baseUrl,
+            @Value("${bot.llm.openai.api-key:}") String apiKey,
+            @Value("${bot.llm.openai.model:deepseek/deepseek-chat:free}") String model
+    ) {
+        this.apiKey = apiKey;
+        this.model = model;
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .defaultHeader("Authorization", "Bearer " + apiKey)
+                .defaultHeader("Content-Type", "application/json")
+                .defaultHeader("HTTP-Referer", "https://github.com/puhlikov/interviewbot")
+                .defaultHeader("X-Title", "InterviewBot")
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return !apiKey.isBlank();
+    }
+
+    @Override
+    public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", model);
+        body.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+        body.put("temperature", profile.temperature());
+        body.put("max_tokens", profile.maxTokens());
+        body.put("stream", false);
+        if (type == CallType.EVALUATE) {
+            // Оценка разбирается как JSON: просим модель не добавлять текст вокруг объекта
+            body.put("response_format", Map.of("type", "json_object"));
+        }
+        return client.post()
+                .uri("/chat/completions")
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .flatMap(OpenAiCompatibleProvider::extractContent)
+                .flux();
+    }
+
+    static Mono<String> extractContent(JsonNode response) {
+        JsonNode content = response.path("choices").path(0).path("message").path("content");
+        if (!content.isTextual() || content.asText().isEmpty()) {
+            return Mono.error(new IllegalStateException("No content in chat completion response"));
+        }
+        return Mono.just(content.asText());
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Провайдер без сети для тестов и нагрузочных прогонов: отвечает шаблонным текстом
+ * с заданной задержкой и с заданной долей отказов. По умолчанию выключен.
+ */
+@Component
+public class StubLlmProvider implements LlmProvider {
+
+    public static final String NAME = "stub";
+
+    private final boolean enabled;
+    private final Duration latency;
+    private final double failureRate;
+
+    public StubLlmProvider(
+            @Value("${bot.llm.stub.enabled:false}") boolean enabled,
+            @Value("${bot.llm.stub.latency-ms:200}") long latencyMs,
+            @Value("${bot.llm.stub.failure-rate:0.0}") double failureRate
+    ) {
+        this.enabled = enabled;
+        this.latency = Duration.ofMillis(latencyMs);
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+        return Flux.defer(() -> {
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                return Flux.<String>error(new IOException("Connection reset (injected by stub provider)"))
+                        .delaySubscription(latency);
+            }
+            return Flux.fromIterable(reply(type)).delaySubscription(latency);
+        });
+    }
+
+    private static List<String> reply(CallType type) {
+        return switch (type) {
+            case CLASSIFY -> List.of("ДА");
+            case EVALUATE -> List.of("{\"score\": 7, \"mistakes\": \"\", ",
+                    "\"missing\": \"Можно добавить примеры.\"}");
+            case ANSWER -> List.of("Это ответ тестового провайдера. ", "Он не обращается к модели.");
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.puhlikov.interviewbot.service.resilience;
+
+/**
+ * Адаптивный лимит одновременных запросов по схеме AIMD: быстрый ответ при загруженном лимите
+ * увеличивает его на 1/limit (примерно +1 за "окно" запросов), медленный ответ или ошибка
+ * уменьшает лимит в {@code backoffRatio} раз. Запрос сверх лимита сразу отклоняется.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit bounds: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return true, если запрос можно выполнить; тогда по его завершении нужно вызвать один из
+     *         {@link #onSuccess}, {@link #onDropped}, {@link #onIgnored}
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Запрос выполнен успешно за {@code latencyNanos}.
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        int wasInFlight = inFlight--;
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (wasInFlight * 2 >= getLimit()) {
+            // Лимит растет, только если он действительно используется
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Запрос завершился ошибкой или таймаутом: признак перегрузки.
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        decrease();
+    }
+
+    /**
+     * Запрос отменен до результата: о нагрузке ничего не известно.
+     */
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.puhlikov.interviewbot.service.resilience;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Автомат защиты: после {@code failureThreshold} ошибок подряд запросы отклоняются сразу
+ * в течение {@code openDurationNanos}, затем пропускается один пробный запрос. Его успех
+ * закрывает автомат, ошибка снова открывает.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDurationNanos) {
+        this(failureThreshold, openDurationNanos, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openDurationNanos, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDurationNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return true, если запрос можно выполнить; тогда по его завершении нужно вызвать один из
+     *         {@link #onSuccess}, {@link #onFailure}, {@link #onIgnored}
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAtNanos < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.OPEN) {
+            return;
+        }
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Запрос отменен до результата: пробный запрос можно повторить.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        probeInFlight = false;
+        consecutiveFailures = 0;
+    }
+}
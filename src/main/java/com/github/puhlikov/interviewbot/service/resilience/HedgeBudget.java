@@ -0,0 +1,33 @@
+package com.github.puhlikov.interviewbot.service.resilience;
+
+/**
+ * Бюджет дублирующих (hedged) запросов: каждый обычный запрос добавляет {@code ratio} токена
+ * (не больше {@code burst}), каждый дубль расходует один. Так дублей не больше заданной доли
+ * запросов, даже если медленным стал весь апстрим.
+ */
+public class HedgeBudget {
+
+    private final double ratio;
+    private final double burst;
+    private double tokens;
+
+    public HedgeBudget(double ratio, double burst) {
+        if (ratio < 0 || burst < 1) {
+            throw new IllegalArgumentException("Hedge ratio must be non-negative and burst at least 1");
+        }
+        this.ratio = ratio;
+        this.burst = burst;
+    }
+
+    public synchronized void onRequest() {
+        tokens = Math.min(burst, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.puhlikov.interviewbot.service.sse;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Декодер SSE-потока chat/completions: из байтов ответа извлекает текстовые фрагменты
+ * {@code choices[0].delta.content}. JSON разбирается потоковым {@link JsonParser} прямо из байтов строки,
+ * без промежуточных String и Map. Экземпляр хранит состояние одного потока и не потокобезопасен.
+ */
+public final class ChatCompletionStreamDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatCompletionStreamDecoder.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final byte ESC = 0x1B;
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DONE_MARKER = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+
+    private final SseLineDecoder lineDecoder = new SseLineDecoder();
+    private final SseLineDecoder.LineHandler lineHandler = this::onLine;
+    private byte[] inputBuffer = new byte[0];
+    private byte[] lineBuffer = new byte[0];
+    private List<String> deltas;
+
+    /**
+     * Декодирует очередной буфер и освобождает его.
+     * @return фрагменты текста, завершенные в этом буфере (обычно 0-2)
+     */
+    public List<String> decode(DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer byteBuffer = iterator.next();
+                if (byteBuffer.hasArray()) {
+                    lineDecoder.feed(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+                            byteBuffer.remaining(), lineHandler);
+                } else {
+                    int length = byteBuffer.remaining();
+                    if (inputBuffer.length < length) {
+                        inputBuffer = new byte[length];
+                    }
+                    byte[] bytes = inputBuffer;
+                    byteBuffer.get(bytes, 0, length);
+                    lineDecoder.feed(bytes, 0, length, lineHandler);
+                }
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return drain();
+    }
+
+    public List<String> decode(byte[] bytes, int offset, int length) {
+        lineDecoder.feed(bytes, offset, length, lineHandler);
+        return drain();
+    }
+
+    /**
+     * Вызывается в конце потока: обрабатывает последнюю строку без перевода строки.
+     */
+    public List<String> finish() {
+        lineDecoder.finish(lineHandler);
+        return drain();
+    }
+
+    private List<String> drain() {
+        if (deltas == null) {
+            return Collections.emptyList();
+        }
+        List<String> result = deltas;
+        deltas = null;
+        return result;
+    }
+
+    private void onLine(byte[] bytes, int offset, int length) {
+        if (indexOf(bytes, offset, length, ESC) >= 0) {
+            if (lineBuffer.length < length) {
+                lineBuffer = new byte[Math.max(length, lineBuffer.length * 2)];
+            }
+            byte[] cleaned = lineBuffer;
+            length = stripAnsiCodes(bytes, offset, length, cleaned);
+            bytes = cleaned;
+            offset = 0;
+        }
+        // Аналог trim()
+        while (length > 0 && bytes[offset] <= ' ') {
+            offset++;
+            length--;
+        }
+        while (length > 0 && bytes[offset + length - 1] <= ' ') {
+            length--;
+        }
+        if (!startsWith(bytes, offset, length, DATA_PREFIX)) {
+            return;
+        }
+        offset += DATA_PREFIX.length;
+        length -= DATA_PREFIX.length;
+        while (length > 0 && bytes[offset] == ' ') {
+            offset++;
+            length--;
+        }
+        if (length == 0 || (length == DONE_MARKER.length && startsWith(bytes, offset, length, DONE_MARKER))) {
+            return;
+        }
+
+        String content = parseContent(bytes, offset, length);
+        if (content != null) {
+            if (deltas == null) {
+                deltas = new ArrayList<>(2);
+            }
+            deltas.add(content);
+        }
+    }
+
+    /**
+     * Извлекает choices[0].delta.content; при поле error бросает исключение с сообщением API.
+     */
+    static String parseContent(byte[] bytes, int offset, int length) {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String content = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    content = readFirstChoiceContent(parser);
+                } else if ("error".equals(field)) {
+                    String errorMsg = readErrorMessage(parser, value);
+                    logger.error("API returned error: {}", errorMsg);
+                    throw new RuntimeException("API Error: " + errorMsg);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return content;
+        } catch (JsonProcessingException e) {
+            // JSON обрывается или невалидный - пропускаем чанк
+            logger.debug("Invalid JSON chunk received, skipping: {}", e.getOriginalMessage());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String readFirstChoiceContent(JsonParser parser) throws IOException {
+        String content = null;
+        boolean first = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("delta".equals(field) && value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String deltaField = parser.currentName();
+                            JsonToken deltaValue = parser.nextToken();
+                            if ("content".equals(deltaField) && deltaValue == JsonToken.VALUE_STRING) {
+                                content = parser.getText();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+        return content;
+    }
+
+    private static String readErrorMessage(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        String message = null;
+        if (value == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("message".equals(field)) {
+                    message = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return String.valueOf(message);
+    }
+
+    /**
+     * Удаляет ANSI-последовательности вида ESC [ ... m (аналог регулярного выражения \u001B\[[;\d]*m).
+     */
+    private static int stripAnsiCodes(byte[] src, int offset, int length, byte[] dst) {
+        int written = 0;
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (src[i] == ESC && i + 1 < end && src[i + 1] == '[') {
+                int j = i + 2;
+                while (j < end && (src[j] == ';' || (src[j] >= '0' && src[j] <= '9'))) {
+                    j++;
+                }
+                if (j < end && src[j] == 'm') {
+                    i = j + 1;
+                    continue;
+                }
+            }
+            dst[written++] = src[i++];
+        }
+        return written;
+    }
+
+    private static int indexOf(byte[] bytes, int offset, int length, byte value) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.puhlikov.interviewbot.service.sse;
+
+import java.util.Arrays;
+
+/**
+ * Побайтовый разбор потока на строки.
+ * Незавершенная строка в конце буфера сохраняется и дописывается следующим буфером, поэтому строки
+ * и многобайтовые UTF-8 символы, разрезанные границей буфера, не ломаются. Декодирование в String
+ * не выполняется - обработчик получает байты строки без завершающих \r\n.
+ */
+public final class SseLineDecoder {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    @FunctionalInterface
+    public interface LineHandler {
+        void onLine(byte[] bytes, int offset, int length);
+    }
+
+    private byte[] carry = new byte[256];
+    private int carryLength;
+
+    /**
+     * Передает обработчику все строки, завершенные в {@code src[offset, offset + length)}.
+     * Массив, переданный обработчику, действителен только на время вызова.
+     */
+    public void feed(byte[] src, int offset, int length, LineHandler handler) {
+        int end = offset + length;
+        int lineStart = offset;
+        for (int i = offset; i < end; i++) {
+            if (src[i] != LF) {
+                continue;
+            }
+            if (carryLength > 0) {
+                append(src, lineStart, i - lineStart);
+                emit(carry, 0, carryLength, handler);
+                carryLength = 0;
+            } else {
+                emit(src, lineStart, i - lineStart, handler);
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < end) {
+            append(src, lineStart, end - lineStart);
+        }
+    }
+
+    /**
+     * Завершает поток: отдает последнюю строку, если она не закончилась переводом строки.
+     */
+    public void finish(LineHandler handler) {
+        if (carryLength > 0) {
+            emit(carry, 0, carryLength, handler);
+            carryLength = 0;
+        }
+    }
+
+    private static void emit(byte[] bytes, int offset, int length, LineHandler handler) {
+        if (length > 0 && bytes[offset + length - 1] == CR) {
+            length--;
+        }
+        handler.onLine(bytes, offset, length);
+    }
+
+    private void append(byte[] src, int offset, int length) {
+        int required = carryLength + length;
+        if (required > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(required, carry.length * 2));
+        }
+        System.arraycopy(src, offset, carry, carryLength, length);
+        carryLength = required;
+    }
+}
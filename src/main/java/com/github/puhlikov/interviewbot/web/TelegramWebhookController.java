@@ -0,0 +1,63 @@
+package com.github.puhlikov.interviewbot.web;
+
+import com.github.puhlikov.interviewbot.bot.InterviewTelegramBot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Точка входа для обновлений в режиме webhook.
+ * Обновление сразу передается в ту же обработку, что и при long polling, а Telegram получает ответ 200
+ * не дожидаясь окончания обработки.
+ */
+@RestController
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+public class TelegramWebhookController {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private static final Logger logger = LoggerFactory.getLogger(TelegramWebhookController.class);
+
+    private final InterviewTelegramBot bot;
+    private final byte[] secret;
+
+    public TelegramWebhookController(
+            InterviewTelegramBot bot,
+            @Value("${telegram.webhook.secret:}") String secret
+    ) {
+        this.bot = bot;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("${telegram.webhook.path}")
+    public ResponseEntity<Void> onUpdate(
+            @RequestHeader(value = SECRET_HEADER, required = false) String secretHeader,
+            @RequestBody Update update
+    ) {
+        if (!isAuthorized(secretHeader)) {
+            logger.warn("Rejected webhook update {} with invalid secret token", update.getUpdateId());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        bot.onUpdateReceived(update);
+        return ResponseEntity.ok().build();
+    }
+
+    private boolean isAuthorized(String secretHeader) {
+        if (secret.length == 0) {
+            return true;
+        }
+        return secretHeader != null
+                && MessageDigest.isEqual(secret, secretHeader.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.puhlikov.interviewbot.benchmark;
+
+import com.github.puhlikov.interviewbot.service.QuestionIdSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость выборки id вопросов в памяти в зависимости от размера базы вопросов.
+ * Время должно оставаться постоянным от 1 тыс. до 1 млн вопросов, в отличие от ORDER BY random(),
+ * который сортирует весь набор активных вопросов.
+ *
+ * <p>Запуск: {@code mvn test-compile}, затем {@code main} этого класса с тестовым classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionSamplerBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int questions;
+
+    @Param({"1", "10"})
+    public int sampleSize;
+
+    private QuestionIdSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Id с пропусками, как после удаления вопросов
+        long[] ids = new long[questions];
+        long id = 0;
+        for (int i = 0; i < questions; i++) {
+            id += 1 + (i % 7 == 0 ? 3 : 0);
+            ids[i] = id;
+        }
+        snapshot = new QuestionIdSnapshot(ids);
+    }
+
+    @Benchmark
+    public long[] sample() {
+        return snapshot.sample(sampleSize, ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public QuestionIdSnapshot addQuestion() {
+        return snapshot.with(snapshot.maxId() + 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(QuestionSamplerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.puhlikov.interviewbot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.puhlikov.interviewbot.service.sse.ChatCompletionStreamDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение разбора SSE-ответа chat/completions: прежний путь (String на буфер, split по регулярному
+ * выражению, replaceAll для ANSI, ObjectMapper в Map) и побайтовый {@link ChatCompletionStreamDecoder}.
+ * Поток режется на буферы фиксированного размера, как его отдает Netty.
+ *
+ * <p>Запуск: {@code mvn test-compile}, затем {@code main} этого класса с тестовым classpath.
+ * Для оценки аллокаций добавьте профилировщик {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseParserBenchmark {
+
+    private static final String ANSI_ESCAPE_REGEX = "\u001B\\[[;\\d]*m";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Param({"512", "4096"})
+    public int bufferSize;
+
+    @Param({"400"})
+    public int chunks;
+
+    private List<byte[]> buffers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder stream = new StringBuilder();
+        String[] words = {"Сборщик ", "мусора ", "G1 ", "делит ", "кучу ", "на ", "регионы", ", ", "а ",
+                "`HashMap` ", "хранит ", "корзины ", "в ", "массиве.\n"};
+        for (int i = 0; i < chunks; i++) {
+            stream.append("data: {\"id\":\"chatcmpl-")
+                    .append(i)
+                    .append("\",\"object\":\"chat.completion.chunk\",\"model\":\"gpt-4.1-mini\",")
+                    .append("\"choices\":[{\"index\":0,\"delta\":{\"content\":\"")
+                    .append(words[i % words.length].replace("\n", "\\n"))
+                    .append("\"},\"finish_reason\":null}]}\n\n");
+        }
+        stream.append("data: [DONE]\n\n");
+
+        byte[] bytes = stream.toString().getBytes(StandardCharsets.UTF_8);
+        buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += bufferSize) {
+            buffers.add(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + bufferSize)));
+        }
+    }
+
+    @Benchmark
+    public void legacyParser(Blackhole blackhole) {
+        for (byte[] buffer : buffers) {
+            String text = new String(buffer, StandardCharsets.UTF_8);
+            for (String line : text.split("\\r?\\n")) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String cleaned = line.replaceAll(ANSI_ESCAPE_REGEX, "");
+                if (cleaned.startsWith("data: ")) {
+                    blackhole.consume(legacyParseChunk(cleaned));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamDecoder(Blackhole blackhole) {
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        for (byte[] buffer : buffers) {
+            blackhole.consume(decoder.decode(buffer, 0, buffer.length));
+        }
+        blackhole.consume(decoder.finish());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String legacyParseChunk(String line) {
+        String json = line.substring(6).trim();
+        if (json.equals("[DONE]") || json.isEmpty()) {
+            return null;
+        }
+        try {
+            Map<String, Object> chunk = OBJECT_MAPPER.readValue(json, Map.class);
+            List<Map<String, Object>> choices = (List<Map<String, Object>>) chunk.get("choices");
+            if (choices == null || choices.isEmpty()) {
+                return null;
+            }
+            Map<String, Object> delta = (Map<String, Object>) choices.get(0).get("delta");
+            return delta != null ? (String) delta.get("content") : null;
+        } catch (Exception e) {
+            // Строка, разрезанная границей буфера, в прежней реализации терялась
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SseParserBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.puhlikov.interviewbot.bot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void testDispatch_SameChatKeepsOrder() throws Exception {
+        // Arrange
+        dispatcher = new UpdateDispatcher(4, 1000, 1000, meterRegistry);
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(500);
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            int seq = i;
+            dispatcher.dispatch(42L, () -> {
+                processed.add(seq);
+                done.countDown();
+            });
+        }
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, processed.get(i));
+        }
+    }
+
+    @Test
+    void testDispatch_SlowChatDoesNotBlockOtherChats() throws Exception {
+        // Arrange
+        dispatcher = new UpdateDispatcher(4, 16, 1000, meterRegistry);
+        long slowChat = 1L;
+        long fastChat = 2L;
+        assertNotEquals(dispatcher.stripeFor(slowChat), dispatcher.stripeFor(fastChat));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+
+        // Act
+        dispatcher.dispatch(slowChat, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.dispatch(fastChat, fastDone::countDown);
+
+        // Assert
+        assertTrue(fastDone.await(2, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void testDispatch_FullQueueDropsAfterTimeoutAndReportsDepth() throws Exception {
+        // Arrange
+        dispatcher = new UpdateDispatcher(1, 2, 10, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch(7L, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        // Act
+        dispatcher.dispatch(7L, () -> { });
+        dispatcher.dispatch(7L, () -> { });
+        dispatcher.dispatch(7L, () -> { });
+
+        // Assert
+        assertEquals(2, dispatcher.getQueueDepth(0));
+        assertEquals(2.0, meterRegistry.get("bot.dispatcher.queue.depth").tag("stripe", "0").gauge().value());
+        assertEquals(1.0, meterRegistry.get("bot.dispatcher.rejected").counter().count());
+        release.countDown();
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.puhlikov.interviewbot.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Оценки (потоки Reactor) и переходы "Следующий вопрос" (поток обновлений) одновременно
+ * меняют одну сессию: ни один вопрос не должен быть пропущен или оценен дважды.
+ */
+class UserQuestionCacheStressTest {
+
+    private static final int QUESTIONS = 50;
+    private static final int ROUNDS = 100;
+    private static final int EVALUATORS = 4;
+    private static final int MOVERS = 4;
+
+    @Test
+    void testConcurrentScoresAndMoves_KeepProgressConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(EVALUATORS + MOVERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Arrange
+                long[] ids = new long[QUESTIONS];
+                for (int i = 0; i < QUESTIONS; i++) {
+                    ids[i] = i + 1;
+                }
+                UserQuestionCache cache = new UserQuestionCache(1L, ids, QUESTIONS);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> tasks = new ArrayList<>();
+
+                // Act
+                for (int t = 0; t < EVALUATORS; t++) {
+                    tasks.add(executor.submit(() -> {
+                        start.await();
+                        // Каждый оценщик оценивает текущий вопрос, как опоздавшие или повторные оценки
+                        while (cache.getCurrentIndex() < QUESTIONS) {
+                            int index = cache.getCurrentIndex();
+                            cache.recordScore(index, index % 11);
+                            Thread.yield();
+                        }
+                        return null;
+                    }));
+                }
+                for (int t = 0; t < MOVERS; t++) {
+                    tasks.add(executor.submit(() -> {
+                        start.await();
+                        // Несколько потоков одновременно "нажимают" кнопку перехода
+                        while (cache.getCurrentIndex() < QUESTIONS) {
+                            cache.moveToNextQuestion();
+                            Thread.yield();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> task : tasks) {
+                    task.get(10, TimeUnit.SECONDS);
+                }
+
+                // Assert
+                int expectedSum = 0;
+                for (int i = 0; i < QUESTIONS; i++) {
+                    expectedSum += i % 11;
+                }
+                assertEquals(QUESTIONS, cache.getCurrentIndex());
+                assertEquals(QUESTIONS, cache.getAnsweredCount(), "every question scored exactly once");
+                assertEquals((double) expectedSum / QUESTIONS, cache.getAverageScore(), 1e-9);
+                assertEquals(UserQuestionCache.NOT_ADVANCED, cache.moveToNextQuestion());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentDuplicateScores_CountedOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(EVALUATORS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Arrange
+                UserQuestionCache cache = new UserQuestionCache(1L, new long[]{1L, 2L}, 2);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> tasks = new ArrayList<>();
+                for (int t = 0; t < EVALUATORS; t++) {
+                    int score = t + 1;
+                    tasks.add(executor.submit(() -> {
+                        start.await();
+                        return cache.recordScore(0, score);
+                    }));
+                }
+
+                // Act
+                start.countDown();
+                int accepted = 0;
+                for (Future<Boolean> task : tasks) {
+                    if (task.get(10, TimeUnit.SECONDS)) {
+                        accepted++;
+                    }
+                }
+
+                // Assert
+                assertEquals(1, accepted);
+                assertEquals(1, cache.getAnsweredCount());
+                assertEquals(1, cache.moveToNextQuestion());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package com.github.puhlikov.interviewbot.model;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 
@@ -11,180 +9,209 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class UserQuestionCacheTest {
 
-    private Question question1;
-    private Question question2;
-    private Question question3;
     private static final Long TEST_CHAT_ID = 12345L;
 
-    @BeforeEach
-    void setUp() {
-        question1 = createQuestion(1L, "Question 1");
-        question2 = createQuestion(2L, "Question 2");
-        question3 = createQuestion(3L, "Question 3");
-    }
-
-    private Question createQuestion(Long id, String text) {
+    private Question createQuestion(Long id) {
         Question q = new Question();
         q.setId(id);
-        q.setQuestionText(text);
-        q.setCategory("Java");
-        q.setDifficultyLevel("Junior");
-        q.setIsActive(true);
-        q.setCreatedAt(Instant.now());
+        q.setQuestionText("Question " + id);
         return q;
     }
 
     @Test
     void testConstructor_WithQuestions() {
         // Arrange
-        List<Question> questions = List.of(question1, question2, question3);
+        List<Question> questions = List.of(createQuestion(1L), createQuestion(2L), createQuestion(3L));
 
         // Act
         UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 3);
 
         // Assert
         assertEquals(TEST_CHAT_ID, cache.getChatId());
-        assertEquals(3, cache.getQuestions().size());
+        assertEquals(3, cache.getTotalQuestions());
         assertEquals(0, cache.getCurrentIndex());
         assertEquals(3, cache.getQuestionsPerSession());
+        assertEquals(1L, cache.getCurrentQuestionId());
     }
 
     @Test
-    void testGetCurrentQuestion_FirstQuestion() {
+    void testMoveToNextQuestion_MovesIndex() {
         // Arrange
-        List<Question> questions = List.of(question1, question2, question3);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 3);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L, 20L, 30L}, 3);
 
         // Act
-        Question current = cache.getCurrentQuestion();
+        cache.recordScore(0, 5);
+        int next1 = cache.moveToNextQuestion();
+        cache.recordScore(1, 6);
+        int next2 = cache.moveToNextQuestion();
 
         // Assert
-        assertNotNull(current);
-        assertEquals(question1.getId(), current.getId());
-        assertEquals("Question 1", current.getQuestionText());
+        assertEquals(1, next1);
+        assertEquals(2, next2);
+        assertEquals(30L, cache.getCurrentQuestionId());
     }
 
     @Test
-    void testGetNextQuestion_MovesIndex() {
+    void testMoveToNextQuestion_CurrentNotAnswered() {
         // Arrange
-        List<Question> questions = List.of(question1, question2, question3);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 3);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L, 20L}, 2);
 
         // Act
-        Question next = cache.getNextQuestion();
+        int next = cache.moveToNextQuestion();
 
         // Assert
-        assertNotNull(next);
-        assertEquals(question2.getId(), next.getId());
-        assertEquals(1, cache.getCurrentIndex());
+        assertEquals(UserQuestionCache.NOT_ADVANCED, next);
+        assertEquals(10L, cache.getCurrentQuestionId());
     }
 
     @Test
-    void testGetNextQuestion_MultipleTimes() {
+    void testMoveToNextQuestion_DoubleTap() {
         // Arrange
-        List<Question> questions = List.of(question1, question2, question3);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 3);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L, 20L, 30L}, 3);
+        cache.recordScore(0, 5);
 
         // Act
-        Question next1 = cache.getNextQuestion();
-        Question next2 = cache.getNextQuestion();
+        int first = cache.moveToNextQuestion();
+        int second = cache.moveToNextQuestion();
 
         // Assert
-        assertEquals(question2.getId(), next1.getId());
-        assertEquals(question3.getId(), next2.getId());
-        assertEquals(2, cache.getCurrentIndex());
+        assertEquals(1, first);
+        assertEquals(UserQuestionCache.NOT_ADVANCED, second);
+        assertEquals(20L, cache.getCurrentQuestionId());
     }
 
     @Test
-    void testGetNextQuestion_LastQuestion() {
+    void testMoveToNextQuestion_AfterUnscored() {
         // Arrange
-        List<Question> questions = List.of(question1);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 1);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L, 20L}, 2);
+        cache.markUnscored(0);
 
         // Act
-        Question next = cache.getNextQuestion();
+        int next = cache.moveToNextQuestion();
 
         // Assert
-        assertNull(next);
-        assertEquals(1, cache.getCurrentIndex());
+        assertEquals(1, next);
+        assertEquals(0, cache.getAnsweredCount());
     }
 
     @Test
-    void testGetCurrentQuestion_AfterLast() {
+    void testMoveToNextQuestion_AfterLast() {
         // Arrange
-        List<Question> questions = List.of(question1);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 1);
-        cache.getNextQuestion(); // Move to index 1
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L}, 1);
+        cache.recordScore(0, 5);
 
         // Act
-        Question current = cache.getCurrentQuestion();
+        int next = cache.moveToNextQuestion();
 
         // Assert
-        assertNull(current);
+        assertEquals(1, next);
+        assertFalse(UserQuestionCache.isQuestion(cache.getCurrentQuestionId()));
+        assertEquals(UserQuestionCache.NOT_ADVANCED, cache.moveToNextQuestion());
     }
 
     @Test
     void testHasNext_True() {
         // Arrange
-        List<Question> questions = List.of(question1, question2, question3);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 3);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L, 2L, 3L}, 3);
 
         // Act & Assert
         assertTrue(cache.hasNext());
+        assertFalse(cache.isLastQuestion());
     }
 
     @Test
     void testHasNext_False_LastQuestion() {
         // Arrange
-        List<Question> questions = List.of(question1, question2);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 2);
-        cache.getNextQuestion(); // Move to last question (index 1)
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L, 2L}, 2);
+        cache.recordScore(0, 5);
+        cache.moveToNextQuestion(); // Move to last question (index 1)
 
         // Act & Assert
         assertFalse(cache.hasNext());
+        assertTrue(cache.isLastQuestion());
     }
 
     @Test
-    void testHasNext_False_SingleQuestion() {
+    void testHasNext_EmptyList() {
         // Arrange
-        List<Question> questions = List.of(question1);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 1);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, Collections.emptyList(), 0);
 
         // Act & Assert
         assertFalse(cache.hasNext());
+        assertEquals(0, cache.getTotalQuestions());
+        assertFalse(UserQuestionCache.isQuestion(cache.getCurrentQuestionId()));
     }
 
     @Test
-    void testHasNext_EmptyList() {
+    void testRecordScore_KeepsRunningAverage() {
         // Arrange
-        List<Question> questions = Collections.emptyList();
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 0);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L, 2L, 3L}, 3);
 
-        // Act & Assert
-        assertFalse(cache.hasNext());
+        // Act
+        cache.recordScore(0, 7);
+        cache.recordScore(1, 8);
+        cache.recordScore(2, 10);
+
+        // Assert
+        assertEquals(3, cache.getAnsweredCount());
+        assertEquals(25.0 / 3, cache.getAverageScore(), 1e-9);
     }
 
     @Test
-    void testGettersAndSetters() {
+    void testRecordScore_FirstScoreWins() {
+        // Arrange
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L, 2L}, 2);
+
+        // Act
+        boolean first = cache.recordScore(0, 9);
+        boolean duplicate = cache.recordScore(0, 0);
+        boolean outOfRange = cache.recordScore(5, 3);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(duplicate);
+        assertFalse(outOfRange);
+        assertEquals(1, cache.getAnsweredCount());
+        assertEquals(9.0, cache.getAverageScore());
+    }
+
+    @Test
+    void testRecordScore_AfterUnscored() {
+        // Arrange
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L}, 1);
+        cache.markUnscored(0);
+
+        // Act
+        boolean recorded = cache.recordScore(0, 6);
+
+        // Assert
+        assertTrue(recorded);
+        assertEquals(1, cache.getAnsweredCount());
+    }
+
+    @Test
+    void testGetAverageScore_NoScores() {
         // Arrange
-        List<Question> questions = List.of(question1);
-        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, questions, 1);
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L}, 1);
 
         // Act & Assert
-        assertEquals(TEST_CHAT_ID, cache.getChatId());
-        assertEquals(1, cache.getQuestions().size());
-        assertEquals(0, cache.getCurrentIndex());
-        assertEquals(1, cache.getQuestionsPerSession());
+        assertEquals(0, cache.getAnsweredCount());
+        assertEquals(0.0, cache.getAverageScore());
+    }
+
+    @Test
+    void testGettersAndSetters() {
+        // Arrange
+        UserQuestionCache cache = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L}, 1);
 
-        // Test setters
-        Long newChatId = 99999L;
-        cache.setChatId(newChatId);
+        // Act
+        cache.setChatId(99999L);
         cache.setCurrentIndex(5);
         cache.setQuestionsPerSession(10);
 
-        assertEquals(newChatId, cache.getChatId());
+        // Assert
+        assertEquals(99999L, cache.getChatId());
         assertEquals(5, cache.getCurrentIndex());
         assertEquals(10, cache.getQuestionsPerSession());
     }
 }
-
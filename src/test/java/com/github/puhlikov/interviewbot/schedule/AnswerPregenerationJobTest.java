@@ -0,0 +1,85 @@
+package com.github.puhlikov.interviewbot.schedule;
+
+import com.github.puhlikov.interviewbot.model.Question;
+import com.github.puhlikov.interviewbot.repo.QuestionRepository;
+import com.github.puhlikov.interviewbot.service.ReferenceAnswerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnswerPregenerationJobTest {
+
+    @Mock
+    private QuestionRepository questions;
+
+    @Mock
+    private ReferenceAnswerService referenceAnswerService;
+
+    private AnswerPregenerationJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new AnswerPregenerationJob(questions, referenceAnswerService, 2);
+        // Генерация не удается и ничего не сохраняет
+        lenient().when(referenceAnswerService.generate(any())).thenReturn(Mono.just("❌ Ошибка сети"));
+    }
+
+    @Test
+    void testPregenerate_ContinuesAfterLastQuestionOfPreviousRun() {
+        // Arrange
+        when(questions.findActiveWithoutAnswer(0, 2)).thenReturn(List.of(question(1), question(2)));
+        when(questions.findActiveWithoutAnswer(2, 2)).thenReturn(List.of(question(3), question(4)));
+
+        // Act
+        job.pregenerate();
+        job.pregenerate();
+
+        // Assert
+        verify(referenceAnswerService).generate(argThat(q -> q.getId() == 3L));
+        verify(referenceAnswerService).generate(argThat(q -> q.getId() == 4L));
+    }
+
+    @Test
+    void testPregenerate_WrapsAroundAfterEndOfList() {
+        // Arrange
+        when(questions.findActiveWithoutAnswer(0, 2)).thenReturn(List.of(question(1), question(2)));
+        when(questions.findActiveWithoutAnswer(2, 2)).thenReturn(List.of());
+
+        // Act
+        job.pregenerate();
+        job.pregenerate();
+
+        // Assert - второй запуск дошел до конца и начал сначала
+        verify(questions, times(2)).findActiveWithoutAnswer(0, 2);
+        verify(referenceAnswerService, times(2)).generate(argThat(q -> q.getId() == 1L));
+    }
+
+    @Test
+    void testPregenerate_PartialBatchRestartsFromBeginning() {
+        // Arrange
+        when(questions.findActiveWithoutAnswer(0, 2)).thenReturn(List.of(question(5)));
+
+        // Act
+        job.pregenerate();
+        job.pregenerate();
+
+        // Assert
+        verify(questions, times(2)).findActiveWithoutAnswer(0, 2);
+        verify(questions, never()).findActiveWithoutAnswer(5, 2);
+    }
+
+    private static Question question(long id) {
+        Question question = new Question();
+        question.setId(id);
+        return question;
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.puhlikov.interviewbot.schedule;
+
+import com.github.puhlikov.interviewbot.bot.InterviewTelegramBot;
+import com.github.puhlikov.interviewbot.enums.RegistrationState;
+import com.github.puhlikov.interviewbot.model.BotUser;
+import com.github.puhlikov.interviewbot.repo.BotUserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Два планировщика в одной JVM против настоящего PostgreSQL: каждый пользователь должен получить
+ * уведомление ровно один раз. Требует Docker, без него тест пропускается.
+ */
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DailyBatchSchedulerConcurrencyTest {
+
+    private static final int USERS = 300;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private BotUserRepository users;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testTwoSchedulers_EachUserNotifiedOnce() throws Exception {
+        // Arrange
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        List<BotUser> due = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            BotUser user = new BotUser();
+            user.setChatId(1_000_000L + i);
+            user.setRegistrationState(RegistrationState.COMPLETED);
+            user.setScheduleTime(LocalTime.of(9, 0));
+            user.setTimezone("UTC");
+            user.setNextNotificationAt(now.minusSeconds(30));
+            due.add(user);
+        }
+        users.saveAll(due);
+
+        Queue<Long> notified = new ConcurrentLinkedQueue<>();
+        InterviewTelegramBot bot = mock(InterviewTelegramBot.class);
+        doAnswer(invocation -> notified.add(invocation.getArgument(0))).when(bot).sendDailyNotification(anyLong());
+        DailyBatchScheduler first = new DailyBatchScheduler(users, bot, transactionTemplate, 10, 100);
+        DailyBatchScheduler second = new DailyBatchScheduler(users, bot, transactionTemplate, 10, 100);
+
+        // Act
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?> a = executor.submit(() -> {
+            start.await();
+            first.sendDueNotifications(now);
+            return null;
+        });
+        Future<?> b = executor.submit(() -> {
+            start.await();
+            second.sendDueNotifications(now);
+            return null;
+        });
+        start.countDown();
+        a.get(60, TimeUnit.SECONDS);
+        b.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(USERS, notified.size());
+        assertEquals(USERS, new HashSet<>(notified).size());
+        assertTrue(users.claimDueForNotification(now, USERS).isEmpty());
+    }
+}
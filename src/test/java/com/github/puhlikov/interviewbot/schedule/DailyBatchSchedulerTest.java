@@ -0,0 +1,137 @@
+package com.github.puhlikov.interviewbot.schedule;
+
+import com.github.puhlikov.interviewbot.bot.InterviewTelegramBot;
+import com.github.puhlikov.interviewbot.enums.RegistrationState;
+import com.github.puhlikov.interviewbot.model.BotUser;
+import com.github.puhlikov.interviewbot.repo.BotUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DailyBatchSchedulerTest {
+
+    private static final Instant NOW = Instant.parse("2026-06-01T06:00:00Z");
+
+    @Mock
+    private BotUserRepository users;
+
+    @Mock
+    private InterviewTelegramBot bot;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private DailyBatchScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        scheduler = new DailyBatchScheduler(users, bot, transactionTemplate, 2, 10);
+    }
+
+    private static BotUser dueUser(long id, String timezone) {
+        BotUser user = new BotUser();
+        user.setId(id);
+        user.setChatId(100L + id);
+        user.setRegistrationState(RegistrationState.COMPLETED);
+        user.setScheduleTime(LocalTime.of(9, 0));
+        user.setTimezone(timezone);
+        user.setNextNotificationAt(NOW);
+        return user;
+    }
+
+    @Test
+    void testSendDueNotifications_PagesAndReschedules() {
+        // Arrange - полная страница, затем неполная
+        BotUser first = dueUser(1L, "Europe/Moscow");
+        BotUser second = dueUser(2L, "Europe/Moscow");
+        BotUser third = dueUser(3L, "Europe/Moscow");
+        when(users.claimDueForNotification(eq(NOW), eq(2)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+
+        // Act
+        scheduler.sendDueNotifications(NOW);
+
+        // Assert
+        verify(users, times(2)).claimDueForNotification(eq(NOW), eq(2));
+        verify(bot).sendDailyNotification(101L);
+        verify(bot).sendDailyNotification(102L);
+        verify(bot).sendDailyNotification(103L);
+        assertEquals(Instant.parse("2026-06-02T06:00:00Z"), first.getNextNotificationAt());
+        verify(users, never()).findAll();
+    }
+
+    @Test
+    void testSendDueNotifications_InvalidTimezoneIsUnscheduled() {
+        // Arrange
+        BotUser broken = dueUser(1L, "Not/AZone");
+        when(users.claimDueForNotification(eq(NOW), eq(2))).thenReturn(List.of(broken));
+
+        // Act
+        scheduler.sendDueNotifications(NOW);
+
+        // Assert
+        assertNull(broken.getNextNotificationAt());
+        verify(bot, never()).sendDailyNotification(any());
+    }
+
+    @Test
+    void testSendDueNotifications_CatchesUpMissedMinutes() {
+        // Arrange - уведомление должно было уйти 2,5 минуты назад
+        BotUser missed = dueUser(1L, "UTC");
+        missed.setNextNotificationAt(NOW.minusSeconds(150));
+        when(users.claimDueForNotification(eq(NOW), eq(2))).thenReturn(List.of(missed));
+
+        // Act
+        scheduler.sendDueNotifications(NOW);
+
+        // Assert - пропущенное уведомление отправлено и перенесено на ближайшее время
+        verify(bot).sendDailyNotification(101L);
+        assertEquals(Instant.parse("2026-06-01T09:00:00Z"), missed.getNextNotificationAt());
+    }
+
+    @Test
+    void testSendDueNotifications_LongDowntimeDoesNotWalkEveryMinute() {
+        // Arrange - после простоя наступивших уведомлений нет
+        when(users.claimDueForNotification(any(), anyInt())).thenReturn(List.of());
+
+        // Act
+        scheduler.sendDueNotifications(NOW);
+
+        // Assert
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(users, times(1)).claimDueForNotification(NOW, 2);
+    }
+
+    @Test
+    void testSendDueNotifications_BatchLimitDefersRemainder() {
+        // Arrange - не больше одной пачки за запуск, а окно заполнено полностью
+        scheduler = new DailyBatchScheduler(users, bot, transactionTemplate, 2, 1);
+        when(users.claimDueForNotification(any(), anyInt()))
+                .thenReturn(List.of(dueUser(1L, "UTC"), dueUser(2L, "UTC")));
+
+        // Act
+        scheduler.sendDueNotifications(NOW);
+
+        // Assert - остаток окна будет обработан следующим запуском
+        verify(users, times(1)).claimDueForNotification(any(), anyInt());
+        verify(bot, times(2)).sendDailyNotification(any());
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.puhlikov.interviewbot.schedule;
+
+import com.github.puhlikov.interviewbot.enums.RegistrationState;
+import com.github.puhlikov.interviewbot.model.BotUser;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationTimesTest {
+
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    @Test
+    void testNextAfter_LaterToday() {
+        // Act
+        Instant next = NotificationTimes.nextAfter(LocalTime.of(14, 0), ZoneId.of("Europe/Moscow"),
+                Instant.parse("2026-06-01T08:00:00Z"));
+
+        // Assert
+        assertEquals(Instant.parse("2026-06-01T11:00:00Z"), next);
+    }
+
+    @Test
+    void testNextAfter_ExactTimeMovesToTomorrow() {
+        // Act
+        Instant next = NotificationTimes.nextAfter(LocalTime.of(14, 0), ZoneId.of("Europe/Moscow"),
+                Instant.parse("2026-06-01T11:00:00Z"));
+
+        // Assert
+        assertEquals(Instant.parse("2026-06-02T11:00:00Z"), next);
+    }
+
+    @Test
+    void testNextAfter_SpringForwardGapShiftedForward() {
+        // Arrange - 29.03.2026 в Лондоне часы переводятся с 01:00 на 02:00, 01:30 не существует
+        Instant before = Instant.parse("2026-03-29T00:00:00Z");
+
+        // Act
+        Instant next = NotificationTimes.nextAfter(LocalTime.of(1, 30), LONDON, before);
+        Instant following = NotificationTimes.nextAfter(LocalTime.of(1, 30), LONDON, next);
+
+        // Assert - 02:30 BST, на следующий день снова 01:30 по местному времени
+        assertEquals(Instant.parse("2026-03-29T01:30:00Z"), next);
+        assertEquals(Instant.parse("2026-03-30T00:30:00Z"), following);
+    }
+
+    @Test
+    void testNextAfter_FallBackOverlapFiresOnce() {
+        // Arrange - 25.10.2026 в Лондоне 01:30 наступает дважды
+        Instant before = Instant.parse("2026-10-24T23:00:00Z");
+
+        // Act
+        Instant next = NotificationTimes.nextAfter(LocalTime.of(1, 30), LONDON, before);
+        Instant following = NotificationTimes.nextAfter(LocalTime.of(1, 30), LONDON, next);
+
+        // Assert
+        assertEquals(Instant.parse("2026-10-25T00:30:00Z"), next);
+        assertEquals(Instant.parse("2026-10-26T01:30:00Z"), following);
+    }
+
+    @Test
+    void testNextAfter_UserWithoutScheduleOrInvalidZone() {
+        // Arrange
+        BotUser user = new BotUser();
+        user.setRegistrationState(RegistrationState.COMPLETED);
+        Instant now = Instant.parse("2026-06-01T08:00:00Z");
+
+        // Act & Assert
+        assertNull(NotificationTimes.nextAfter(user, now));
+        user.setScheduleTime(LocalTime.of(9, 0));
+        user.setTimezone("Mars/Olympus");
+        assertNull(NotificationTimes.nextAfter(user, now));
+        user.setTimezone("UTC");
+        assertEquals(Instant.parse("2026-06-01T09:00:00Z"), NotificationTimes.nextAfter(user, now));
+    }
+}
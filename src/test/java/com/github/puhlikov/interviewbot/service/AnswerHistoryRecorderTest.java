@@ -0,0 +1,95 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.model.AnswerEvent;
+import com.github.puhlikov.interviewbot.repo.AnswerEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnswerHistoryRecorderTest {
+
+    @Mock
+    private AnswerEventRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnswerHistoryRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new AnswerHistoryRecorder(repository, 3, 2, meterRegistry);
+    }
+
+    @Test
+    void testRecord_DoesNotTouchDatabase() {
+        // Act
+        recorder.record(1L, 10L, 7, 1200L, false);
+
+        // Assert
+        assertEquals(1, recorder.buffered());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testFlush_InsertsInBatches() {
+        // Arrange
+        List<List<AnswerEvent>> batches = new ArrayList<>();
+        doAnswer(invocation -> batches.add(List.copyOf(invocation.getArgument(0))))
+                .when(repository).insertAll(any());
+        recorder.record(1L, 10L, 7, 1200L, false);
+        recorder.record(1L, 11L, 0, 800L, true);
+        recorder.record(2L, 10L, 9, 3000L, false);
+
+        // Act
+        recorder.flush();
+
+        // Assert
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(1, batches.get(1).size());
+        AnswerEvent revealed = batches.get(0).get(1);
+        assertEquals(11L, revealed.getQuestionId());
+        assertTrue(revealed.isRevealed());
+        assertEquals(0, recorder.buffered());
+    }
+
+    @Test
+    void testRecord_FullBuffer_DropsEvent() {
+        // Act
+        for (int i = 0; i < 5; i++) {
+            recorder.record(1L, i, 5, 100L, false);
+        }
+
+        // Assert
+        assertEquals(3, recorder.buffered());
+        assertEquals(2.0, meterRegistry.get("bot.history.dropped").counter().count());
+    }
+
+    @Test
+    void testFlush_DatabaseError_ContinuesWithNextBatch() {
+        // Arrange
+        doThrow(new RuntimeException("connection refused")).doNothing().when(repository).insertAll(any());
+        recorder.record(1L, 10L, 7, 1200L, false);
+        recorder.record(1L, 11L, 6, 800L, false);
+        recorder.record(1L, 12L, 5, 900L, false);
+
+        // Act
+        recorder.flush();
+
+        // Assert
+        verify(repository, times(2)).insertAll(any());
+        assertEquals(0, recorder.buffered());
+        assertEquals(2.0, meterRegistry.get("bot.history.dropped").counter().count());
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.enums.SettingsState;
+import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatStateStoreTest {
+
+    private static final Long TEST_CHAT_ID = 12345L;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Object> events = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChatStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ChatStateStore(Duration.ofMinutes(10), 100, meterRegistry, events::add, nanos::get, Runnable::run);
+    }
+
+    @Test
+    void testIdleSessionEvicted_PublishesEvent() {
+        // Arrange
+        store.getOrCreate(TEST_CHAT_ID).setQuestionSession(new UserQuestionCache(TEST_CHAT_ID, List.of(), 5));
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+        store.cleanUp();
+
+        // Assert
+        assertNull(store.find(TEST_CHAT_ID));
+        assertEquals(1, events.size());
+        assertEquals(TEST_CHAT_ID, ((ChatStateEvictedEvent) events.get(0)).chatId());
+    }
+
+    @Test
+    void testAccessExtendsIdleTtl() {
+        // Arrange
+        store.getOrCreate(TEST_CHAT_ID).setSettingsState(SettingsState.AWAITING_TIME);
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        store.find(TEST_CHAT_ID);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        store.cleanUp();
+
+        // Assert
+        assertNotNull(store.find(TEST_CHAT_ID));
+    }
+
+    @Test
+    void testEvictionWithoutSession_NoEvent() {
+        // Arrange
+        store.getOrCreate(TEST_CHAT_ID).setSettingsState(SettingsState.AWAITING_TIME);
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+        store.cleanUp();
+
+        // Assert
+        assertNull(store.find(TEST_CHAT_ID));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testRemoveIfEmpty() {
+        // Arrange
+        ChatState state = store.getOrCreate(TEST_CHAT_ID);
+        state.setSettingsState(SettingsState.AWAITING_TIME);
+
+        // Act & Assert
+        store.removeIfEmpty(TEST_CHAT_ID);
+        assertNotNull(store.find(TEST_CHAT_ID));
+        state.setSettingsState(SettingsState.NONE);
+        store.removeIfEmpty(TEST_CHAT_ID);
+        assertNull(store.find(TEST_CHAT_ID));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testCancelPendingRequests_DisposesTrackedSubscriptions() {
+        // Arrange
+        ChatState state = store.getOrCreate(TEST_CHAT_ID);
+        Sinks.One<String> reply = Sinks.one();
+        List<String> delivered = new ArrayList<>();
+        state.trackRequest(reply.asMono().subscribe(delivered::add));
+
+        // Act
+        store.removeIfEmpty(TEST_CHAT_ID);
+        store.cancelPendingRequests(TEST_CHAT_ID);
+        reply.tryEmitValue("stale");
+
+        // Assert
+        assertNotNull(store.find(TEST_CHAT_ID));
+        assertTrue(delivered.isEmpty());
+        assertEquals(0, state.pendingRequestCount());
+        assertEquals(1.0, meterRegistry.get("chat.state.requests.cancelled").counter().count());
+    }
+
+    @Test
+    void testEviction_CancelsPendingRequests() {
+        // Arrange
+        Disposable request = Mono.never().subscribe();
+        store.getOrCreate(TEST_CHAT_ID).trackRequest(request);
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+        store.cleanUp();
+
+        // Assert
+        assertNull(store.find(TEST_CHAT_ID));
+        assertTrue(request.isDisposed());
+    }
+
+    @Test
+    void testMetricsRegistered() {
+        // Arrange
+        store.getOrCreate(TEST_CHAT_ID).setQuestionSession(new UserQuestionCache(TEST_CHAT_ID, List.of(), 5));
+
+        // Act & Assert
+        assertEquals(1.0, meterRegistry.get("chat.state.question.sessions").gauge().value());
+        assertNotNull(meterRegistry.get("cache.size").tag("cache", "chat.state").gauge());
+    }
+}
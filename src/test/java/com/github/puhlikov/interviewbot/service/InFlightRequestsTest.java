@@ -0,0 +1,126 @@
+package com.github.puhlikov.interviewbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightRequestsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private InFlightRequests inFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inFlight = new InFlightRequests(meterRegistry);
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("bot.llm.requests").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testKey_IgnoresWhitespaceDifferences() {
+        // Act & Assert
+        assertEquals(InFlightRequests.key("answer", "What is  JVM?\n"), InFlightRequests.key("answer", " What is JVM?"));
+        assertNotEquals(InFlightRequests.key("answer", "What is JVM?"), InFlightRequests.key("stream", "What is JVM?"));
+        assertNotEquals(InFlightRequests.key("answer", "What is JVM?"), InFlightRequests.key("answer", "What is JDK?"));
+    }
+
+    @Test
+    void testJoin_ConcurrentIdenticalRequests_ShareOneUpstreamCall() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        List<String> results = new CopyOnWriteArrayList<>();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            inFlight.join("k", () -> {
+                calls.incrementAndGet();
+                return upstream.asMono();
+            }).subscribe(results::add);
+        }
+        upstream.tryEmitValue("answer");
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(List.of("answer", "answer", "answer"), results);
+        assertEquals(1.0, requests("upstream"));
+        assertEquals(2.0, requests("coalesced"));
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    void testJoin_AfterCompletion_StartsNewRequest() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        String first = inFlight.join("k", () -> Mono.fromCallable(() -> "a" + calls.incrementAndGet())).block();
+        String second = inFlight.join("k", () -> Mono.fromCallable(() -> "a" + calls.incrementAndGet())).block();
+
+        // Assert
+        assertEquals("a1", first);
+        assertEquals("a2", second);
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    void testJoin_OneSubscriberCancels_OthersStillReceiveResult() {
+        // Arrange
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Sinks.One<String> upstream = Sinks.one();
+        List<String> results = new CopyOnWriteArrayList<>();
+        Disposable first = inFlight.join("k", () -> upstream.asMono().doOnCancel(() -> cancelled.set(true)))
+                .subscribe(results::add);
+        inFlight.join("k", upstream::asMono).subscribe(results::add);
+
+        // Act
+        first.dispose();
+        upstream.tryEmitValue("answer");
+
+        // Assert
+        assertFalse(cancelled.get());
+        assertEquals(List.of("answer"), results);
+    }
+
+    @Test
+    void testJoinStream_LateSubscriberReceivesEarlierChunks() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> early = new CopyOnWriteArrayList<>();
+        List<String> late = new CopyOnWriteArrayList<>();
+        inFlight.joinStream("k", () -> {
+            calls.incrementAndGet();
+            return upstream.asFlux();
+        }).subscribe(early::add);
+        upstream.tryEmitNext("Hello");
+
+        // Act
+        inFlight.joinStream("k", () -> {
+            calls.incrementAndGet();
+            return Flux.just("unexpected");
+        }).subscribe(late::add);
+        upstream.tryEmitNext(", world");
+        upstream.tryEmitComplete();
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(List.of("Hello", ", world"), early);
+        assertEquals(List.of("Hello", ", world"), late);
+        assertEquals(0, inFlight.size());
+    }
+}
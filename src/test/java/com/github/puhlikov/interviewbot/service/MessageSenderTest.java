@@ -0,0 +1,154 @@
+package com.github.puhlikov.interviewbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MessageSenderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AbsSender bot;
+    private MessageSender messageSender;
+
+    @BeforeEach
+    void setUp() {
+        bot = mock(AbsSender.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageSender.shutdown();
+    }
+
+    private MessageSender createSender(double globalRate, double chatRate, double chatBurst) {
+        MessageSender sender = new MessageSender(globalRate, chatRate, chatBurst, 4, 100, 2, meterRegistry);
+        sender.setBot(bot);
+        return sender;
+    }
+
+    @Test
+    void testSendMessage_KeepsOrderWithinChat() throws Exception {
+        // Arrange
+        messageSender = createSender(1000, 1000, 1000);
+        List<String> sent = new CopyOnWriteArrayList<>();
+        when(bot.execute(any(SendMessage.class))).thenAnswer(invocation -> {
+            sent.add(((SendMessage) invocation.getArgument(0)).getText());
+            return new Message();
+        });
+
+        // Act
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(messageSender.sendMessage(1L, "msg-" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(50, sent.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("msg-" + i, sent.get(i));
+        }
+        assertEquals(0, messageSender.getQueueDepth());
+    }
+
+    @Test
+    void testSendMessage_PerChatRateLimitApplied() throws Exception {
+        // Arrange - 1 сообщение сразу, далее 10 сообщений в секунду
+        messageSender = createSender(1000, 10, 1);
+        when(bot.execute(any(SendMessage.class))).thenReturn(new Message());
+        long start = System.nanoTime();
+
+        // Act
+        CompletableFuture<Message> first = messageSender.sendMessage(1L, "a");
+        messageSender.sendMessage(1L, "b");
+        CompletableFuture<Message> last = messageSender.sendMessage(1L, "c");
+        last.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(first.isDone());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 150, "Expected throttling, elapsed " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testSendMessage_RetriesAfterTooManyRequests() throws Exception {
+        // Arrange
+        messageSender = createSender(1000, 1000, 1000);
+        TelegramApiRequestException tooManyRequests = mock(TelegramApiRequestException.class);
+        when(tooManyRequests.getErrorCode()).thenReturn(429);
+        when(tooManyRequests.getParameters()).thenReturn(new ResponseParameters(null, 0));
+        Message delivered = new Message();
+        when(bot.execute(any(SendMessage.class))).thenThrow(tooManyRequests).thenReturn(delivered);
+
+        // Act
+        Message result = messageSender.sendMessage(1L, "hello").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertSame(delivered, result);
+        verify(bot, times(2)).execute(any(SendMessage.class));
+        assertEquals(1.0, meterRegistry.get("telegram.send.rate_limited").counter().count());
+    }
+
+    @Test
+    void testSendMessage_FailsAfterMaxRetries() throws Exception {
+        // Arrange
+        messageSender = createSender(1000, 1000, 1000);
+        TelegramApiRequestException tooManyRequests = mock(TelegramApiRequestException.class);
+        when(tooManyRequests.getErrorCode()).thenReturn(429);
+        when(tooManyRequests.getParameters()).thenReturn(new ResponseParameters(null, 0));
+        when(bot.execute(any(SendMessage.class))).thenThrow(tooManyRequests);
+
+        // Act
+        CompletableFuture<Message> future = messageSender.sendMessage(1L, "hello");
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertSame(tooManyRequests, exception.getCause());
+        verify(bot, times(3)).execute(any(SendMessage.class));
+        assertEquals(0, messageSender.getQueueDepth());
+    }
+
+    @Test
+    void testSendMessage_GlobalLimitSharedFairlyBetweenChats() throws Exception {
+        // Arrange - общий лимит 10 в секунду; сначала расходуем начальный запас токенов
+        messageSender = createSender(10, 1000, 1000);
+        List<Long> sentTo = new CopyOnWriteArrayList<>();
+        when(bot.execute(any(SendMessage.class))).thenAnswer(invocation -> {
+            sentTo.add(Long.valueOf(((SendMessage) invocation.getArgument(0)).getChatId()));
+            return new Message();
+        });
+        List<CompletableFuture<Message>> warmUp = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            warmUp.add(messageSender.sendMessage(3L, "warm-up"));
+        }
+        CompletableFuture.allOf(warmUp.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        sentTo.clear();
+
+        // Act - чат 1 идет в обходе раньше чата 2 и всегда готов отправить следующее сообщение
+        for (int i = 0; i < 20; i++) {
+            messageSender.sendMessage(1L, "broadcast-" + i);
+        }
+        messageSender.sendMessage(2L, "reply").get(5, TimeUnit.SECONDS);
+
+        // Assert - чат 2 не ждет, пока чат 1 отправит всю очередь
+        long sentToFirstChat = sentTo.stream().filter(chatId -> chatId == 1L).count();
+        assertTrue(sentToFirstChat <= 3, "Chat 2 waited for " + sentToFirstChat + " messages of chat 1");
+    }
+}
@@ -2,10 +2,10 @@ package com.github.puhlikov.interviewbot.service;
 
 import com.github.puhlikov.interviewbot.model.Question;
 import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -13,8 +13,12 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,7 +27,12 @@ class QuestionCacheServiceTest {
     @Mock
     private QuestionService questionService;
 
-    @InjectMocks
+    @Mock
+    private QuestionSessionStore sessionStore;
+
+    @Mock
+    private AnswerHistoryRecorder answerHistory;
+
     private QuestionCacheService questionCacheService;
 
     private Question question1;
@@ -33,6 +42,8 @@ class QuestionCacheServiceTest {
 
     @BeforeEach
     void setUp() {
+        ChatStateStore chatStateStore = new ChatStateStore(120, 1000, new SimpleMeterRegistry(), event -> { });
+        questionCacheService = new QuestionCacheService(chatStateStore, questionService, sessionStore, answerHistory, 1000);
         question1 = createQuestion(1L, "Question 1");
         question2 = createQuestion(2L, "Question 2");
         question3 = createQuestion(3L, "Question 3");
@@ -61,7 +72,7 @@ class QuestionCacheServiceTest {
         // Assert
         UserQuestionCache cache = questionCacheService.getUserCache(TEST_CHAT_ID);
         assertNotNull(cache);
-        assertEquals(3, cache.getQuestions().size());
+        assertEquals(3, cache.getTotalQuestions());
         assertTrue(questionCacheService.isUserInSession(TEST_CHAT_ID));
         verify(questionService, times(1)).getRandomQuestions(3);
     }
@@ -77,7 +88,7 @@ class QuestionCacheServiceTest {
         // Assert
         UserQuestionCache cache = questionCacheService.getUserCache(TEST_CHAT_ID);
         assertNotNull(cache);
-        assertTrue(cache.getQuestions().isEmpty());
+        assertEquals(0, cache.getTotalQuestions());
     }
 
     @Test
@@ -85,6 +96,7 @@ class QuestionCacheServiceTest {
         // Arrange
         List<Question> questions = Arrays.asList(question1, question2, question3);
         when(questionService.getRandomQuestions(3)).thenReturn(questions);
+        when(questionService.getById(1L)).thenReturn(Optional.of(question1));
         questionCacheService.initializeUserCache(TEST_CHAT_ID, 3);
 
         // Act
@@ -110,7 +122,9 @@ class QuestionCacheServiceTest {
         // Arrange
         List<Question> questions = Arrays.asList(question1, question2, question3);
         when(questionService.getRandomQuestions(3)).thenReturn(questions);
+        when(questionService.getById(2L)).thenReturn(Optional.of(question2));
         questionCacheService.initializeUserCache(TEST_CHAT_ID, 3);
+        questionCacheService.getUserCache(TEST_CHAT_ID).recordScore(0, 7);
 
         // Act
         Question next = questionCacheService.getNextQuestion(TEST_CHAT_ID);
@@ -120,6 +134,36 @@ class QuestionCacheServiceTest {
         assertEquals(question2.getId(), next.getId());
     }
 
+    @Test
+    void testGetNextQuestion_AfterLast() {
+        // Arrange
+        when(questionService.getRandomQuestions(1)).thenReturn(Collections.singletonList(question1));
+        questionCacheService.initializeUserCache(TEST_CHAT_ID, 1);
+        questionCacheService.getUserCache(TEST_CHAT_ID).recordScore(0, 7);
+
+        // Act
+        Question next = questionCacheService.getNextQuestion(TEST_CHAT_ID);
+
+        // Assert
+        assertNull(next);
+        verify(questionService, never()).getById(anyLong());
+    }
+
+    @Test
+    void testGetNextQuestion_CurrentNotAnswered() {
+        // Arrange
+        List<Question> questions = Arrays.asList(question1, question2, question3);
+        when(questionService.getRandomQuestions(3)).thenReturn(questions);
+        questionCacheService.initializeUserCache(TEST_CHAT_ID, 3);
+
+        // Act
+        Question next = questionCacheService.getNextQuestion(TEST_CHAT_ID);
+
+        // Assert
+        assertNull(next);
+        assertEquals(0, questionCacheService.getUserCache(TEST_CHAT_ID).getCurrentIndex());
+    }
+
     @Test
     void testGetNextQuestion_NoCache() {
         // Act
@@ -194,6 +238,71 @@ class QuestionCacheServiceTest {
         assertTrue(questionCacheService.isUserInSession(TEST_CHAT_ID));
     }
 
+    @Test
+    void testGetUserCache_RestoresPersistedSessionOnce() {
+        // Arrange
+        UserQuestionCache persisted = new UserQuestionCache(TEST_CHAT_ID, new long[]{1L, 2L}, 2);
+        when(sessionStore.load(TEST_CHAT_ID)).thenReturn(persisted);
+
+        // Act
+        UserQuestionCache first = questionCacheService.getUserCache(TEST_CHAT_ID);
+        UserQuestionCache second = questionCacheService.getUserCache(TEST_CHAT_ID);
+
+        // Assert
+        assertSame(persisted, first);
+        assertSame(persisted, second);
+        verify(sessionStore, times(1)).load(TEST_CHAT_ID);
+    }
+
+    @Test
+    void testGetUserCache_NoPersistedSession_ChecksDatabaseOnce() {
+        // Arrange
+        when(sessionStore.load(TEST_CHAT_ID)).thenReturn(null);
+
+        // Act
+        UserQuestionCache first = questionCacheService.getUserCache(TEST_CHAT_ID);
+        UserQuestionCache second = questionCacheService.getUserCache(TEST_CHAT_ID);
+
+        // Assert - пустое состояние чата не создается, а база читается один раз
+        assertNull(first);
+        assertNull(second);
+        verify(sessionStore, times(1)).load(TEST_CHAT_ID);
+    }
+
+    @Test
+    void testGetUserCache_ClearedSessionIsNotRestoredAgain() {
+        // Arrange
+        when(questionService.getRandomQuestions(1)).thenReturn(Collections.singletonList(question1));
+        questionCacheService.initializeUserCache(TEST_CHAT_ID, 1);
+        questionCacheService.clearUserCache(TEST_CHAT_ID);
+
+        // Act
+        UserQuestionCache result = questionCacheService.getUserCache(TEST_CHAT_ID);
+
+        // Assert - состояние чата удалено, но отметка о проверке сохранилась
+        assertNull(result);
+        verify(sessionStore, never()).load(any());
+    }
+
+    @Test
+    void testSessionChanges_MarkedForWriteBehind() {
+        // Arrange
+        when(questionService.getRandomQuestions(2)).thenReturn(Arrays.asList(question1, question2));
+        questionCacheService.initializeUserCache(TEST_CHAT_ID, 2);
+        UserQuestionCache cache = questionCacheService.getUserCache(TEST_CHAT_ID);
+
+        // Act
+        questionCacheService.recordAnswer(cache, 0, 5, 1500L, false);
+        questionCacheService.recordAnswer(cache, 0, 9, 1700L, false); // повторная оценка не меняет сессию
+        questionCacheService.clearUserCache(TEST_CHAT_ID);
+
+        // Assert
+        verify(sessionStore, times(2)).markDirty(eq(cache), any());
+        verify(answerHistory, times(1)).record(TEST_CHAT_ID, 1L, 5, 1500L, false);
+        verify(sessionStore).markDeleted(TEST_CHAT_ID);
+        verify(sessionStore, never()).load(any());
+    }
+
     @Test
     void testIsUserInSession_False() {
         // Act & Assert
@@ -218,8 +327,8 @@ class QuestionCacheServiceTest {
         // Assert
         assertTrue(questionCacheService.isUserInSession(chatId1));
         assertTrue(questionCacheService.isUserInSession(chatId2));
-        assertEquals(2, questionCacheService.getUserCache(chatId1).getQuestions().size());
-        assertEquals(1, questionCacheService.getUserCache(chatId2).getQuestions().size());
+        assertEquals(2, questionCacheService.getUserCache(chatId1).getTotalQuestions());
+        assertEquals(1, questionCacheService.getUserCache(chatId2).getTotalQuestions());
 
         // Clear one session
         questionCacheService.clearUserCache(chatId1);
@@ -0,0 +1,63 @@
+package com.github.puhlikov.interviewbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionIdSnapshotTest {
+
+    @Test
+    void testSample_ReturnsDistinctIds() {
+        // Arrange
+        long[] ids = new long[100];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 3L + 1;
+        }
+        QuestionIdSnapshot snapshot = new QuestionIdSnapshot(ids);
+        Random random = new Random(42);
+
+        // Act & Assert
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            long[] sample = snapshot.sample(10, random);
+            assertEquals(10, sample.length);
+            assertEquals(10, Arrays.stream(sample).distinct().count());
+            assertTrue(Arrays.stream(sample).allMatch(id -> Arrays.binarySearch(ids, id) >= 0));
+        }
+    }
+
+    @Test
+    void testSample_CountLargerThanSize() {
+        // Arrange
+        QuestionIdSnapshot snapshot = new QuestionIdSnapshot(new long[]{5L, 7L});
+
+        // Act
+        long[] sample = snapshot.sample(10, new Random(1));
+
+        // Assert
+        Arrays.sort(sample);
+        assertArrayEquals(new long[]{5L, 7L}, sample);
+    }
+
+    @Test
+    void testSample_Empty() {
+        // Act & Assert
+        assertEquals(0, new QuestionIdSnapshot(new long[0]).sample(3, new Random()).length);
+    }
+
+    @Test
+    void testAppendAndWith_KeepOrder() {
+        // Arrange
+        QuestionIdSnapshot snapshot = new QuestionIdSnapshot(new long[]{2L, 4L});
+
+        // Act
+        QuestionIdSnapshot updated = snapshot.append(new long[]{8L, 9L}).with(6L).with(4L);
+
+        // Assert
+        assertEquals(5, updated.size());
+        assertEquals(9L, updated.maxId());
+        assertEquals(2, snapshot.size());
+    }
+}
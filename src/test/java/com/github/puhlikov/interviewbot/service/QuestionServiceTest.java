@@ -5,19 +5,16 @@ import com.github.puhlikov.interviewbot.repo.QuestionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,13 +23,16 @@ class QuestionServiceTest {
     @Mock
     private QuestionRepository repository;
 
-    @InjectMocks
+    @Mock
+    private QuestionSampler sampler;
+
     private QuestionService questionService;
 
     private Question testQuestion;
 
     @BeforeEach
     void setUp() {
+        questionService = new QuestionService(repository, sampler, 100);
         testQuestion = new Question();
         testQuestion.setId(1L);
         testQuestion.setQuestionText("What is Java?");
@@ -45,23 +45,41 @@ class QuestionServiceTest {
     @Test
     void testGetRandomQuestions_Success() {
         // Arrange
-        List<Question> expectedQuestions = Arrays.asList(testQuestion);
-        when(repository.findRandomActive(anyInt())).thenReturn(expectedQuestions);
+        Question second = new Question();
+        second.setId(2L);
+        second.setQuestionText("What is JVM?");
+        when(sampler.sample(5)).thenReturn(new long[]{2L, 1L});
+        when(repository.findAllById(List.of(2L, 1L))).thenReturn(Arrays.asList(testQuestion, second));
 
         // Act
         List<Question> result = questionService.getRandomQuestions(5);
 
-        // Assert
+        // Assert - порядок соответствует выборке, строки читаются одним запросом
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("What is Java?", result.get(0).getQuestionText());
-        verify(repository, times(1)).findRandomActive(5);
+        assertEquals(2, result.size());
+        assertEquals("What is JVM?", result.get(0).getQuestionText());
+        assertEquals("What is Java?", result.get(1).getQuestionText());
+        verify(repository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void testGetRandomQuestions_SkipsDeactivatedQuestion() {
+        // Arrange
+        testQuestion.setIsActive(false);
+        when(sampler.sample(1)).thenReturn(new long[]{1L});
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(testQuestion));
+
+        // Act
+        List<Question> result = questionService.getRandomQuestions(1);
+
+        // Assert
+        assertTrue(result.isEmpty());
     }
 
     @Test
     void testGetRandomQuestions_EmptyList() {
         // Arrange
-        when(repository.findRandomActive(anyInt())).thenReturn(Collections.emptyList());
+        when(sampler.sample(10)).thenReturn(new long[0]);
 
         // Act
         List<Question> result = questionService.getRandomQuestions(10);
@@ -69,7 +87,7 @@ class QuestionServiceTest {
         // Assert
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(repository, times(1)).findRandomActive(10);
+        verify(repository, never()).findAllById(any());
     }
 
     @Test
@@ -87,6 +105,20 @@ class QuestionServiceTest {
         verify(repository, times(1)).findById(1L);
     }
 
+    @Test
+    void testGetById_ServedFromCache() {
+        // Arrange
+        when(repository.findById(1L)).thenReturn(Optional.of(testQuestion));
+        questionService.getById(1L);
+
+        // Act
+        Optional<Question> result = questionService.getById(1L);
+
+        // Assert
+        assertSame(testQuestion, result.orElseThrow());
+        verify(repository, times(1)).findById(1L);
+    }
+
     @Test
     void testGetById_NotFound() {
         // Arrange
@@ -110,6 +142,7 @@ class QuestionServiceTest {
 
         // Assert
         verify(repository, times(1)).save(testQuestion);
+        verify(sampler, times(1)).add(1L);
     }
 
     @Test
@@ -0,0 +1,146 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.model.PersistedQuestionSession;
+import com.github.puhlikov.interviewbot.model.UserQuestionCache;
+import com.github.puhlikov.interviewbot.repo.QuestionSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuestionSessionStoreTest {
+
+    private static final Long TEST_CHAT_ID = 12345L;
+
+    @Mock
+    private QuestionSessionRepository repository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private QuestionSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuestionSessionStore(repository, transactionTemplate, 120);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline() {
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_CoalescesChangesOfOneChat() {
+        // Arrange
+        runTransactionsInline();
+        UserQuestionCache session = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L, 20L}, 2);
+        store.markDirty(session, () -> session);
+        session.recordScore(0, 8);
+        store.markDirty(session, () -> session);
+        session.moveToNextQuestion();
+        store.markDirty(session, () -> session);
+
+        // Act
+        store.flush();
+
+        // Assert
+        ArgumentCaptor<List<PersistedQuestionSession>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).upsertAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        PersistedQuestionSession saved = captor.getValue().get(0);
+        assertEquals(TEST_CHAT_ID, saved.getChatId());
+        assertEquals(1, saved.getCurrentIndex());
+        assertEquals(16, saved.getQuestionIds().length);
+        assertEquals(8, saved.getScores()[0]);
+        verify(repository, never()).deleteAllByIdInBatch(any());
+        assertEquals(0, store.pendingCount());
+    }
+
+    @Test
+    void testFlush_DeleteReplacesPendingSave() {
+        // Arrange
+        runTransactionsInline();
+        UserQuestionCache session = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L}, 1);
+        store.markDirty(session, () -> session);
+        store.markDeleted(TEST_CHAT_ID);
+
+        // Act
+        store.flush();
+
+        // Assert
+        verify(repository, never()).upsertAll(any());
+        verify(repository, times(1)).deleteAllByIdInBatch(List.of(TEST_CHAT_ID));
+    }
+
+    @Test
+    void testMarkDirty_IgnoresFinishedSession() {
+        // Arrange
+        UserQuestionCache session = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L}, 1);
+        store.markDeleted(TEST_CHAT_ID);
+
+        // Act - поздняя оценка уже завершенной сессии
+        store.markDirty(session, () -> null);
+
+        // Assert
+        assertNull(store.load(TEST_CHAT_ID));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testFlush_Failure_KeepsChangesForRetry() {
+        // Arrange
+        doThrow(new RuntimeException("connection refused")).when(transactionTemplate).executeWithoutResult(any());
+        UserQuestionCache session = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L}, 1);
+        store.markDirty(session, () -> session);
+
+        // Act
+        store.flush();
+
+        // Assert
+        assertEquals(1, store.pendingCount());
+        assertNotNull(store.load(TEST_CHAT_ID));
+    }
+
+    @Test
+    void testLoad_RestoresProgressFromDatabase() {
+        // Arrange
+        runTransactionsInline();
+        UserQuestionCache session = new UserQuestionCache(TEST_CHAT_ID, new long[]{10L, 20L, 30L}, 3);
+        session.recordScore(0, 6);
+        session.moveToNextQuestion();
+        store.markDirty(session, () -> session);
+        store.flush();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PersistedQuestionSession>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).upsertAll(captor.capture());
+        when(repository.findById(TEST_CHAT_ID)).thenReturn(Optional.of(captor.getValue().get(0)));
+
+        // Act
+        UserQuestionCache restored = store.load(TEST_CHAT_ID);
+
+        // Assert
+        assertNotNull(restored);
+        assertEquals(20L, restored.getCurrentQuestionId());
+        assertEquals(1, restored.getAnsweredCount());
+        assertEquals(6.0, restored.getAverageScore());
+        assertEquals(3, restored.getTotalQuestions());
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.repo.QuestionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuestionTopicClassifierTest {
+
+    @Mock
+    private QuestionRepository repository;
+
+    @Mock
+    private WorkingApiService workingApiService;
+
+    // Типичные вопросы базы: служебные слова встречаются почти в каждом
+    private static final List<String> QUESTION_BANK = List.of(
+            "Что такое JVM и из каких частей она состоит?",
+            "Почему String в Java не изменяемый?",
+            "Чем ArrayList отличается от LinkedList по скорости вставки?",
+            "Как работает HashMap и что происходит при коллизии?",
+            "Что будет, если не переопределить hashCode при переопределении equals?",
+            "Какие уровни изоляции транзакций есть в PostgreSQL?",
+            "Как Spring создает бины и на каком этапе внедряются зависимости?",
+            "Что такое ленивая загрузка в Hibernate и почему возникает LazyInitializationException?",
+            "Чем отличается checked исключение от unchecked?",
+            "Как работает сборщик мусора G1 и на что влияет размер региона?",
+            "Что такое индекс в базе данных и когда он не используется?",
+            "Чем процесс отличается от потока?",
+            "Как устроен пул потоков в ExecutorService?",
+            "Что делает ключевое слово volatile?",
+            "Почему HashMap не потокобезопасен и что использовать вместо него?",
+            "Зачем нужен Docker и чем контейнер отличается от виртуальной машины?",
+            "Что такое REST и чем он отличается от SOAP?",
+            "Как работает механизм ретраев по таймауту в HTTP-клиенте?",
+            "Что такое deadlock и как его избежать?",
+            "Какие есть способы передачи данных между микросервисами?",
+            "Что такое Stream API и чем промежуточные операции отличаются от терминальных?");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QuestionTopicClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        classifier = new QuestionTopicClassifier(repository, workingApiService, 2, 0.3, meterRegistry);
+    }
+
+    @Test
+    void testClassify_LearnsVocabularyFromQuestions() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(List.of(
+                "Что такое Liquibase changeset?",
+                "Как откатить changeset в Liquibase?"));
+
+        // Act
+        var verdict = classifier.classify("Зачем нужен changeset в Liquibase");
+
+        // Assert
+        assertEquals(QuestionTopicClassifier.Verdict.RELATED, verdict);
+    }
+
+    @Test
+    void testClassify_UnrelatedQuestionRejectedLocally() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(List.of("Что такое JVM?"));
+
+        // Act
+        var verdict = classifier.classify("Как приготовить борщ со сметаной?");
+
+        // Assert
+        assertEquals(QuestionTopicClassifier.Verdict.NOT_RELATED, verdict);
+    }
+
+    @Test
+    void testClassify_CodeWithoutKnownTermsIsUnsure() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(List.of());
+
+        // Act
+        var verdict = classifier.classify("Что вернет calculateTotal(items) при пустом входе?");
+
+        // Assert
+        assertEquals(QuestionTopicClassifier.Verdict.UNSURE, verdict);
+    }
+
+    @Test
+    void testIsProgrammingRelated_LocalAnswerSkipsLlm() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(List.of());
+
+        // Act
+        Boolean related = classifier.isProgrammingRelated("Чем интерфейс отличается от абстрактного класса в Java?").block();
+
+        // Assert
+        assertTrue(related);
+        verifyNoInteractions(workingApiService);
+        assertEquals(1.0, meterRegistry.get("bot.topic.checks").tag("path", "local").tag("result", "related")
+                .counter().count());
+    }
+
+    @Test
+    void testIsProgrammingRelated_UnsureAsksLlm() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenThrow(new RuntimeException("db down"));
+        when(workingApiService.isProgrammingRelated("Что такое сборка мусора?")).thenReturn(Mono.just(true));
+
+        // Act
+        Boolean related = classifier.isProgrammingRelated("Что такое сборка мусора?").block();
+
+        // Assert
+        assertTrue(related);
+        assertEquals(1.0, meterRegistry.get("bot.topic.checks").tag("path", "llm").tag("result", "related")
+                .counter().count());
+    }
+
+    @Test
+    void testClassify_RealisticBank_ShortFunctionWordsDoNotMatch() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(QUESTION_BANK);
+
+        // Act
+        var verdict = classifier.classify("Как записаться на приём к врачу по полису");
+
+        // Assert
+        assertEquals(QuestionTopicClassifier.Verdict.NOT_RELATED, verdict);
+    }
+
+    @Test
+    void testClassify_RealisticBank_StillRecognizesItQuestion() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(QUESTION_BANK);
+
+        // Act
+        var verdict = classifier.classify("Как хранятся данные в HashMap и как работает поиск по ключу?");
+
+        // Assert
+        assertEquals(QuestionTopicClassifier.Verdict.RELATED, verdict);
+    }
+
+    @Test
+    void testClassify_VeryFrequentStemsExcludedFromVocabulary() {
+        // Arrange - "использовать" есть в каждом вопросе, поэтому ничего не говорит о теме
+        when(repository.findActiveQuestionTexts()).thenReturn(List.of(
+                "Когда использовать Optional?", "Когда использовать record?", "Когда использовать var?",
+                "Когда использовать enum?", "Когда использовать interface?", "Когда использовать final?",
+                "Когда использовать static?", "Когда использовать switch?"));
+
+        // Act
+        var verdict = classifier.classify("Где использовать скидочную карту магазина выгоднее");
+
+        // Assert
+        assertNotEquals(QuestionTopicClassifier.Verdict.RELATED, verdict);
+    }
+
+    @Test
+    void testIsProgrammingRelated_ItQuestionOutsideVocabularyAsksLlm() {
+        // Arrange - ни одного слова вопроса нет в словаре, но это вопрос по IT
+        when(repository.findActiveQuestionTexts()).thenReturn(QUESTION_BANK);
+        String question = "Зачем нужна виртуальная память в операционной системе?";
+        when(workingApiService.isProgrammingRelated(question)).thenReturn(Mono.just(true));
+
+        // Act
+        Boolean related = classifier.isProgrammingRelated(question).block();
+
+        // Assert
+        assertTrue(related);
+        verify(workingApiService).isProgrammingRelated(question);
+        assertEquals(0.0, meterRegistry.get("bot.topic.checks").tag("path", "local").tag("result", "not_related")
+                .counter().count());
+    }
+
+    @Test
+    void testClassify_NoMatchesWithoutOffTopicEvidenceIsUnsure() {
+        // Arrange
+        when(repository.findActiveQuestionTexts()).thenReturn(QUESTION_BANK);
+
+        // Act & Assert
+        assertEquals(QuestionTopicClassifier.Verdict.UNSURE,
+                classifier.classify("Объясните принцип сборки мусора в Go"));
+        assertEquals(QuestionTopicClassifier.Verdict.UNSURE,
+                classifier.classify("Объясните принцип работы балансировщика нагрузки"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.puhlikov.interviewbot.service;
+
+import com.github.puhlikov.interviewbot.model.Question;
+import com.github.puhlikov.interviewbot.model.QuestionAnswer;
+import com.github.puhlikov.interviewbot.repo.QuestionAnswerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceAnswerServiceTest {
+
+    @Mock
+    private QuestionAnswerRepository repository;
+
+    @Mock
+    private WorkingApiService workingApiService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReferenceAnswerService referenceAnswerService;
+    private Question testQuestion;
+
+    @BeforeEach
+    void setUp() {
+        referenceAnswerService = new ReferenceAnswerService(repository, workingApiService, 100, meterRegistry);
+        testQuestion = new Question();
+        testQuestion.setId(1L);
+        testQuestion.setQuestionText("What is Java?");
+    }
+
+    @Test
+    void testFindStored_DatabaseHitIsCachedInMemory() {
+        // Arrange
+        when(repository.findById(1L)).thenReturn(Optional.of(new QuestionAnswer(1L, "Java is a language")));
+
+        // Act
+        Optional<String> first = referenceAnswerService.findStored(1L);
+        Optional<String> second = referenceAnswerService.findStored(1L);
+
+        // Assert
+        assertEquals(Optional.of("Java is a language"), first);
+        assertEquals(first, second);
+        verify(repository, times(1)).findById(1L);
+        assertEquals(1.0, meterRegistry.get("bot.answers.lookup").tag("result", "memory").counter().count());
+    }
+
+    @Test
+    void testFindStored_AnswerStoredAfterCapIsCached() {
+        // Arrange - предел в один ответ уже занят
+        referenceAnswerService = new ReferenceAnswerService(repository, workingApiService, 1, meterRegistry);
+        referenceAnswerService.store(1L, "Java is a language");
+        referenceAnswerService.store(2L, "Kotlin is a language");
+
+        // Act
+        Optional<String> result = referenceAnswerService.findStored(2L);
+
+        // Assert - новый ответ принят в кэш, база не запрашивается
+        assertEquals(Optional.of("Kotlin is a language"), result);
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void testFindStored_Miss() {
+        // Arrange
+        when(repository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<String> result = referenceAnswerService.findStored(1L);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertEquals(1.0, meterRegistry.get("bot.answers.lookup").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testGenerate_StoresSuccessfulAnswer() {
+        // Arrange
+        when(workingApiService.getAnswer("What is Java?")).thenReturn(Mono.just("Java is a language"));
+
+        // Act
+        String result = referenceAnswerService.generate(testQuestion).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals("Java is a language", result);
+        ArgumentCaptor<QuestionAnswer> captor = ArgumentCaptor.forClass(QuestionAnswer.class);
+        verify(repository, times(1)).save(captor.capture());
+        assertEquals(1L, captor.getValue().getQuestionId());
+        assertEquals(Optional.of("Java is a language"), referenceAnswerService.findStored(1L));
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void testGenerate_DoesNotStoreFailedAnswer() {
+        // Arrange
+        when(workingApiService.getAnswer("What is Java?"))
+                .thenReturn(Mono.just("❌ Ошибка сети при запросе к AI: timeout"));
+
+        // Act
+        String result = referenceAnswerService.generate(testQuestion).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertTrue(result.startsWith("❌"));
+        verify(repository, never()).save(any());
+    }
+}
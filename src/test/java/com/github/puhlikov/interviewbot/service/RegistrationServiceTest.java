@@ -4,19 +4,24 @@ import com.github.puhlikov.interviewbot.enums.RegistrationState;
 import com.github.puhlikov.interviewbot.enums.SettingsState;
 import com.github.puhlikov.interviewbot.model.BotUser;
 import com.github.puhlikov.interviewbot.repo.BotUserRepository;
+import com.github.puhlikov.interviewbot.schedule.NotificationTimes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.time.LocalTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,14 +30,17 @@ class RegistrationServiceTest {
     @Mock
     private BotUserRepository userRepository;
 
-    @InjectMocks
     private RegistrationService registrationService;
+    private SimpleMeterRegistry meterRegistry;
 
     private BotUser testUser;
     private static final Long TEST_CHAT_ID = 12345L;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ChatStateStore chatStateStore = new ChatStateStore(120, 1000, meterRegistry, event -> { });
+        registrationService = new RegistrationService(userRepository, chatStateStore, 100, 10, meterRegistry);
         testUser = new BotUser();
         testUser.setId(1L);
         testUser.setChatId(TEST_CHAT_ID);
@@ -73,6 +81,132 @@ class RegistrationServiceTest {
         verify(userRepository, times(1)).findByChatId(TEST_CHAT_ID);
     }
 
+    @Test
+    void testGetUserByChatId_SecondCallServedFromCache() {
+        // Arrange
+        when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
+        registrationService.getUserByChatId(TEST_CHAT_ID);
+
+        // Act
+        Optional<BotUser> result = registrationService.getUserByChatId(TEST_CHAT_ID);
+
+        // Assert
+        assertSame(testUser, result.orElseThrow());
+        verify(userRepository, times(1)).findByChatId(TEST_CHAT_ID);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "bot.users").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testUpdate_SingleStatementAndWriteThrough() {
+        // Arrange
+        when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
+        when(userRepository.updateQuestionsPerSession(TEST_CHAT_ID, 15)).thenReturn(1);
+        registrationService.getUserByChatId(TEST_CHAT_ID);
+
+        // Act
+        registrationService.updateQuestionsPerSession(TEST_CHAT_ID, "15");
+        Optional<BotUser> result = registrationService.getUserByChatId(TEST_CHAT_ID);
+
+        // Assert
+        assertEquals(15, result.orElseThrow().getQuestionsPerSession());
+        assertEquals(20, testUser.getQuestionsPerSession()); // кэшированный объект не изменяется
+        verify(userRepository, times(1)).findByChatId(TEST_CHAT_ID);
+        verify(userRepository, never()).save(any(BotUser.class));
+    }
+
+    @Test
+    void testUpdate_RowMissing_ThrowsAndInvalidates() {
+        // Arrange
+        when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
+        when(userRepository.updateQuestionsPerSession(TEST_CHAT_ID, 15)).thenReturn(0);
+
+        // Act
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> registrationService.updateQuestionsPerSession(TEST_CHAT_ID, "15"));
+        registrationService.getUserByChatId(TEST_CHAT_ID);
+
+        // Assert - пользователь не найден, а устаревшая запись удалена из кэша
+        assertEquals("Пользователь не найден", exception.getMessage());
+        verify(userRepository, times(2)).findByChatId(TEST_CHAT_ID);
+    }
+
+    @Test
+    void testDisableNotifications_ClearsSchedule() {
+        // Arrange
+        testUser.setScheduleTime(LocalTime.of(9, 0));
+        testUser.setTimezone("Europe/Moscow");
+        Instant next = Instant.now().plusSeconds(3600);
+        testUser.setNextNotificationAt(next);
+        when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
+        when(userRepository.updateSchedule(TEST_CHAT_ID, null, RegistrationState.COMPLETED, null,
+                LocalTime.of(9, 0), "Europe/Moscow", RegistrationState.COMPLETED, next)).thenReturn(1);
+
+        // Act
+        BotUser result = registrationService.disableNotifications(TEST_CHAT_ID);
+
+        // Assert - одна инструкция UPDATE, без повторного чтения
+        assertNull(result.getScheduleTime());
+        assertNull(result.getNextNotificationAt());
+        verify(userRepository, times(1)).findByChatId(TEST_CHAT_ID);
+    }
+
+    @Test
+    void testUpdateScheduleTime_StaleCache_RereadsAndRetries() {
+        // Arrange - в кэше момент уже сработавшего уведомления, планировщик сдвинул его в базе
+        testUser.setScheduleTime(LocalTime.of(9, 0));
+        testUser.setTimezone("UTC");
+        Instant fired = Instant.now().minusSeconds(60);
+        testUser.setNextNotificationAt(fired);
+        BotUser fresh = testUser.copy();
+        fresh.setNextNotificationAt(NotificationTimes.nextAfter(fresh, Instant.now()));
+        when(userRepository.findByChatId(TEST_CHAT_ID))
+                .thenReturn(Optional.of(testUser))
+                .thenReturn(Optional.of(fresh));
+        when(userRepository.updateSchedule(eq(TEST_CHAT_ID), eq(LocalTime.of(9, 0)), eq(RegistrationState.COMPLETED),
+                any(), eq(LocalTime.of(9, 0)), eq("UTC"), eq(RegistrationState.COMPLETED), eq(fired)))
+                .thenReturn(0);
+        when(userRepository.updateSchedule(TEST_CHAT_ID, LocalTime.of(9, 0), RegistrationState.COMPLETED,
+                fresh.getNextNotificationAt(), LocalTime.of(9, 0), "UTC", RegistrationState.COMPLETED,
+                fresh.getNextNotificationAt())).thenReturn(1);
+
+        // Act
+        BotUser result = registrationService.updateScheduleTimeForSettings(TEST_CHAT_ID, "09:00");
+
+        // Assert - сработавший момент не записан обратно
+        assertEquals(fresh.getNextNotificationAt(), result.getNextNotificationAt());
+        verify(userRepository, times(2)).findByChatId(TEST_CHAT_ID);
+    }
+
+    @Test
+    void testUpdateScheduleTime_UserDeleted_ReturnsNull() {
+        // Arrange
+        when(userRepository.findByChatId(TEST_CHAT_ID))
+                .thenReturn(Optional.of(testUser))
+                .thenReturn(Optional.empty());
+        when(userRepository.updateSchedule(any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        // Act
+        BotUser result = registrationService.updateScheduleTimeForSettings(TEST_CHAT_ID, "10:00");
+
+        // Assert
+        assertNull(result);
+        verify(userRepository, times(1)).updateSchedule(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetUserByChatId_NotFound_NotCached() {
+        // Arrange
+        when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.empty());
+
+        // Act
+        registrationService.getUserByChatId(TEST_CHAT_ID);
+        registrationService.getUserByChatId(TEST_CHAT_ID);
+
+        // Assert
+        verify(userRepository, times(2)).findByChatId(TEST_CHAT_ID);
+    }
+
     @Test
     void testGetUserByChatId_NotFound() {
         // Arrange
@@ -88,8 +222,10 @@ class RegistrationServiceTest {
     @Test
     void testUpdateFirstName_Success() {
         // Arrange
+        testUser.setRegistrationState(RegistrationState.FIRST_NAME);
         when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(BotUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.updateFirstName(TEST_CHAT_ID, "Jane", RegistrationState.LAST_NAME, null,
+                null, "Europe/Moscow", RegistrationState.FIRST_NAME, null)).thenReturn(1);
 
         // Act
         BotUser result = registrationService.updateFirstName(TEST_CHAT_ID, "Jane");
@@ -98,7 +234,7 @@ class RegistrationServiceTest {
         assertNotNull(result);
         assertEquals("Jane", result.getFirstName());
         assertEquals(RegistrationState.LAST_NAME, result.getRegistrationState());
-        verify(userRepository, times(1)).save(any(BotUser.class));
+        verify(userRepository, never()).save(any(BotUser.class));
     }
 
     @Test
@@ -106,7 +242,8 @@ class RegistrationServiceTest {
         // Arrange
         testUser.setRegistrationState(RegistrationState.LAST_NAME);
         when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(BotUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.updateLastName(TEST_CHAT_ID, "Smith", RegistrationState.USERNAME, null,
+                null, "Europe/Moscow", RegistrationState.LAST_NAME, null)).thenReturn(1);
 
         // Act
         BotUser result = registrationService.updateLastName(TEST_CHAT_ID, "Smith");
@@ -122,7 +259,8 @@ class RegistrationServiceTest {
         // Arrange
         testUser.setRegistrationState(RegistrationState.USERNAME);
         when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(BotUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.updateUsername(TEST_CHAT_ID, "janesmith", RegistrationState.SCHEDULE_TIME, null,
+                null, "Europe/Moscow", RegistrationState.USERNAME, null)).thenReturn(1);
 
         // Act
         BotUser result = registrationService.updateUsername(TEST_CHAT_ID, "janesmith");
@@ -138,7 +276,8 @@ class RegistrationServiceTest {
         // Arrange
         testUser.setRegistrationState(RegistrationState.SCHEDULE_TIME);
         when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(BotUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.updateSchedule(TEST_CHAT_ID, LocalTime.of(14, 30), RegistrationState.TIMEZONE, null,
+                null, "Europe/Moscow", RegistrationState.SCHEDULE_TIME, null)).thenReturn(1);
 
         // Act
         BotUser result = registrationService.updateScheduleTime(TEST_CHAT_ID, "14:30");
@@ -163,16 +302,20 @@ class RegistrationServiceTest {
         testUser.setRegistrationState(RegistrationState.TIMEZONE);
         testUser.setScheduleTime(LocalTime.of(14, 0));
         when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(BotUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.updateTimezone(eq(TEST_CHAT_ID), eq("Europe/Moscow"), eq(RegistrationState.COMPLETED),
+                eq(20), notNull(), eq(LocalTime.of(14, 0)), eq("Europe/Moscow"), eq(RegistrationState.TIMEZONE), isNull()))
+                .thenReturn(1);
 
         // Act
         BotUser result = registrationService.updateTimezone(TEST_CHAT_ID, "Europe/Moscow");
 
-        // Assert
+        // Assert - момент уведомления рассчитан и записан той же инструкцией
         assertNotNull(result);
         assertEquals("Europe/Moscow", result.getTimezone());
         assertEquals(RegistrationState.COMPLETED, result.getRegistrationState());
         assertEquals(20, result.getQuestionsPerSession());
+        assertNotNull(result.getNextNotificationAt());
+        verify(userRepository, times(1)).findByChatId(TEST_CHAT_ID);
     }
 
     @Test
@@ -182,7 +325,7 @@ class RegistrationServiceTest {
         assertTrue(registrationService.isInSettingsState(TEST_CHAT_ID, SettingsState.AWAITING_QUESTIONS_COUNT));
         
         when(userRepository.findByChatId(TEST_CHAT_ID)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(BotUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.updateQuestionsPerSession(TEST_CHAT_ID, 15)).thenReturn(1);
 
         // Act
         BotUser result = registrationService.updateQuestionsPerSession(TEST_CHAT_ID, "15");
@@ -0,0 +1,129 @@
+package com.github.puhlikov.interviewbot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import reactor.core.publisher.Flux;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingAnswerSenderTest {
+
+    private static final Long TEST_CHAT_ID = 12345L;
+    private static final String HEADER = "Ответ:\n\n";
+
+    @Mock
+    private MessageSender messageSender;
+
+    private final AtomicInteger messageIds = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(messageSender.sendMessage(eq(TEST_CHAT_ID), anyString())).thenAnswer(invocation -> {
+            Message message = new Message();
+            message.setMessageId(messageIds.incrementAndGet());
+            return CompletableFuture.completedFuture(message);
+        });
+        when(messageSender.submit(eq(TEST_CHAT_ID), any())).thenReturn(CompletableFuture.completedFuture(Boolean.TRUE));
+    }
+
+    @Test
+    void testStream_PlaceholderThenFinalEdit() {
+        // Arrange
+        StreamingAnswerSender sender = new StreamingAnswerSender(messageSender, 50, 3900);
+        Flux<String> deltas = Flux.just("Hello", ", ", "world");
+
+        // Act
+        String result = sender.stream(TEST_CHAT_ID, HEADER, deltas).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals("Hello, world", result);
+        verify(messageSender, times(1)).sendMessage(eq(TEST_CHAT_ID), anyString());
+        List<EditMessageText> edits = capturedEdits();
+        EditMessageText last = edits.get(edits.size() - 1);
+        assertEquals(HEADER + "Hello, world", last.getText());
+        assertEquals(1, last.getMessageId());
+    }
+
+    @Test
+    void testStream_ThrottledIntermediateEdits() {
+        // Arrange
+        StreamingAnswerSender sender = new StreamingAnswerSender(messageSender, 100, 3900);
+        Flux<String> deltas = Flux.interval(Duration.ofMillis(10)).take(50).map(i -> "x");
+
+        // Act
+        String result = sender.stream(TEST_CHAT_ID, HEADER, deltas).block(Duration.ofSeconds(5));
+
+        // Assert - примерно одна правка на 100 мс вместо правки на каждый фрагмент
+        assertEquals(50, result.length());
+        int edits = capturedEdits().size();
+        assertTrue(edits >= 2 && edits < 15, "Unexpected number of edits: " + edits);
+    }
+
+    @Test
+    void testStream_SplitsLongAnswerIntoSeveralMessages() {
+        // Arrange
+        StreamingAnswerSender sender = new StreamingAnswerSender(messageSender, 50, 100);
+        String line = "0123456789012345678\n";
+        Flux<String> deltas = Flux.range(0, 12).map(i -> line);
+
+        // Act
+        String result = sender.stream(TEST_CHAT_ID, HEADER, deltas).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(line.repeat(12), result);
+        verify(messageSender, atLeast(3)).sendMessage(eq(TEST_CHAT_ID), anyString());
+        List<EditMessageText> edits = capturedEdits();
+        assertTrue(edits.stream().allMatch(edit -> edit.getText().length() <= 100));
+        StringBuilder delivered = new StringBuilder();
+        int currentId = 0;
+        String currentText = "";
+        for (EditMessageText edit : edits) {
+            if (edit.getMessageId() != currentId) {
+                delivered.append(currentText);
+                currentId = edit.getMessageId();
+            }
+            currentText = edit.getText();
+        }
+        delivered.append(currentText);
+        assertEquals(HEADER + line.repeat(12), delivered.toString());
+    }
+
+    @Test
+    void testStream_EmptyAnswer() {
+        // Arrange
+        StreamingAnswerSender sender = new StreamingAnswerSender(messageSender, 50, 3900);
+
+        // Act
+        String result = sender.stream(TEST_CHAT_ID, HEADER, Flux.empty()).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(StreamingAnswerSender.EMPTY_ANSWER, result);
+        List<EditMessageText> edits = capturedEdits();
+        assertEquals(HEADER + StreamingAnswerSender.EMPTY_ANSWER, edits.get(edits.size() - 1).getText());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<EditMessageText> capturedEdits() {
+        ArgumentCaptor<BotApiMethod<Serializable>> captor = ArgumentCaptor.forClass((Class) BotApiMethod.class);
+        verify(messageSender, atLeastOnce()).submit(eq(TEST_CHAT_ID), captor.capture());
+        return captor.getAllValues().stream().map(method -> (EditMessageText) method).toList();
+    }
+}
@@ -1,14 +1,24 @@
 package com.github.puhlikov.interviewbot.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.puhlikov.interviewbot.service.llm.CallType;
+import com.github.puhlikov.interviewbot.service.llm.EvaluationJsonParser.MalformedEvaluationException;
+import com.github.puhlikov.interviewbot.service.llm.GenerationProfile;
+import com.github.puhlikov.interviewbot.service.llm.GenerationProfiles;
+import com.github.puhlikov.interviewbot.service.llm.GptChatbotProvider;
+import com.github.puhlikov.interviewbot.service.llm.LlmProvider;
+import com.github.puhlikov.interviewbot.service.llm.LlmRouter;
+import com.github.puhlikov.interviewbot.service.llm.LlmUpstreamGuard;
+import com.github.puhlikov.interviewbot.service.llm.StubLlmProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -32,9 +42,6 @@ class WorkingApiServiceTest {
     @Mock
     private WebClient.ResponseSpec responseSpec;
 
-    @InjectMocks
-    private WorkingApiService workingApiService;
-
     @BeforeEach
     void setUp() {
         // Since WorkingApiService creates WebClient in constructor, we need to use reflection
@@ -44,25 +51,26 @@ class WorkingApiServiceTest {
 
     @Test
     void testGetAnswer_Success() throws Exception {
-        // Arrange - Create a new service for testing
-        WorkingApiService service = new WorkingApiService();
-        
-        // Since we can't easily mock WebClient in this setup,
-        // we'll verify the structure and that it doesn't throw exceptions
-        // In a real scenario, you'd use WireMock or MockWebServer for integration tests
-        
-        // This test verifies the service can be instantiated
-        assertNotNull(service);
+        // Arrange - сервис поверх провайдера без сети
+        WorkingApiService service = service(new StubLlmProvider(true, 0, 0.0), new SimpleMeterRegistry());
+
+        // Act
+        String answer = service.getAnswer("Что такое JVM?").block();
+
+        // Assert
+        assertEquals("Это ответ тестового провайдера. Он не обращается к модели.", answer);
+        assertFalse(WorkingApiService.isFailedAnswer(answer));
     }
 
     @Test
     void testServiceInitialization() {
         // Test that service can be created
-        WorkingApiService service = new WorkingApiService();
+        WorkingApiService service = service(new StubLlmProvider(true, 0, 0.0), new SimpleMeterRegistry());
         assertNotNull(service);
+        assertNotNull(ReflectionTestUtils.getField(service, "router"));
         
-        // Verify it has a client (using reflection)
-        Object client = ReflectionTestUtils.getField(service, "client");
+        // Verify the default provider has a client (using reflection)
+        Object client = ReflectionTestUtils.getField(new GptChatbotProvider(), "client");
         assertNotNull(client);
         assertTrue(client instanceof WebClient);
     }
@@ -159,7 +167,7 @@ class WorkingApiServiceTest {
     @Test
     void testGetAnswer_ReturnsMono() {
         // Verify that getAnswer returns a Mono<String>
-        WorkingApiService service = new WorkingApiService();
+        WorkingApiService service = service(new StubLlmProvider(true, 0, 0.0), new SimpleMeterRegistry());
         
         Mono<String> result = service.getAnswer("Test question");
         
@@ -172,7 +180,7 @@ class WorkingApiServiceTest {
     void testErrorHandlingStructure() {
         // Test that error handling logic is in place
         // This is more of a structural test
-        WorkingApiService service = new WorkingApiService();
+        WorkingApiService service = service(new StubLlmProvider(true, 0, 0.0), new SimpleMeterRegistry());
         
         // Verify service handles errors (tested through actual usage)
         assertNotNull(service);
@@ -180,5 +188,57 @@ class WorkingApiServiceTest {
         // The actual error handling is tested through integration tests
         // or with tools like WireMock
     }
-}
 
+    @Test
+    void testEvaluateAnswer_MalformedReply_FailsInsteadOfDefaultScore() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WorkingApiService service = service(reply("Оценка: семь из десяти"), meterRegistry);
+
+        // Act & Assert
+        assertThrows(MalformedEvaluationException.class,
+                () -> service.evaluateAnswer("Что такое JVM?", "Виртуальная машина").block());
+        assertEquals(1.0, meterRegistry.get("bot.llm.evaluation.malformed").counter().count());
+    }
+
+    @Test
+    void testEvaluateAnswer_UpstreamError_Propagates() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WorkingApiService service = service(failing(new IllegalStateException("HTTP 500")), meterRegistry);
+
+        // Act & Assert
+        var error = assertThrows(IllegalStateException.class,
+                () -> service.evaluateAnswer("Что такое JVM?", "Виртуальная машина").block());
+        assertEquals("HTTP 500", error.getMessage());
+    }
+
+    private static WorkingApiService service(LlmProvider provider, SimpleMeterRegistry meterRegistry) {
+        LlmRouter router = new LlmRouter(List.of(provider), Map.of(), GenerationProfiles.defaults(),
+                p -> new LlmUpstreamGuard(p.name(), 10, 1, 10, 60_000, 5, 30_000, meterRegistry),
+                meterRegistry);
+        return new WorkingApiService(new InFlightRequests(meterRegistry), router, meterRegistry);
+    }
+
+    private static LlmProvider failing(RuntimeException error) {
+        return provider(Flux.error(error));
+    }
+
+    private static LlmProvider reply(String... chunks) {
+        return provider(Flux.just(chunks));
+    }
+
+    private static LlmProvider provider(Flux<String> response) {
+        return new LlmProvider() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+                return response;
+            }
+        };
+    }
+}
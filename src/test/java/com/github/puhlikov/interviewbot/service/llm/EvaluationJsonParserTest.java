@@ -0,0 +1,75 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.github.puhlikov.interviewbot.model.AnswerEvaluation;
+import com.github.puhlikov.interviewbot.service.llm.EvaluationJsonParser.MalformedEvaluationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationJsonParserTest {
+
+    @Test
+    void testFeed_ChunksSplitInsideTokens() {
+        // Arrange
+        var parser = new EvaluationJsonParser();
+        String[] chunks = {"```json\n{\"sco", "re\": 8, \"mistakes\": \"\", \"missing\": \"Не упомян",
+                "уты примеры\"}", "\n```"};
+
+        // Act
+        boolean completeBeforeEnd = parser.feed(chunks[0]) || parser.feed(chunks[1]);
+        boolean complete = parser.feed(chunks[2]);
+        AnswerEvaluation evaluation = parser.toEvaluation();
+
+        // Assert
+        assertFalse(completeBeforeEnd);
+        assertTrue(complete);
+        assertEquals(8, evaluation.getScore());
+        assertEquals("Не хватает: Не упомянуты примеры", evaluation.getFeedback());
+    }
+
+    @Test
+    void testFeed_ScoreAvailableBeforeObjectEnds() {
+        // Arrange
+        var parser = new EvaluationJsonParser();
+
+        // Act
+        parser.feed("{\"score\": \"12\", \"mistakes\": [\"Путает equals и hashCode\", ");
+        AnswerEvaluation partial = parser.toEvaluation();
+
+        // Assert
+        assertTrue(parser.hasScore());
+        assertEquals(10, partial.getScore());
+        assertEquals("Ошибки: Путает equals и hashCode", partial.getFeedback());
+    }
+
+    @Test
+    void testToEvaluation_EmptyFeedbackUsesDefaultByScore() {
+        // Arrange
+        var parser = new EvaluationJsonParser();
+
+        // Act
+        parser.feed("{\"score\": 9.6, \"mistakes\": \"\", \"missing\": \"\"}");
+
+        // Assert
+        assertEquals(10, parser.toEvaluation().getScore());
+        assertEquals("Ответ полный и верный!", parser.toEvaluation().getFeedback());
+    }
+
+    @Test
+    void testMalformedReplies_Rejected() {
+        // Arrange
+        var notJson = new EvaluationJsonParser();
+        var noScore = new EvaluationJsonParser();
+        var badScore = new EvaluationJsonParser();
+
+        // Act
+        notJson.feed("ОЦЕНКА: 7");
+        noScore.feed("{\"missing\": \"примеры\"}");
+
+        // Assert
+        assertThrows(MalformedEvaluationException.class, notJson::toEvaluation);
+        assertThrows(MalformedEvaluationException.class, noScore::toEvaluation);
+        assertThrows(MalformedEvaluationException.class, () -> badScore.feed("{\"score\": \"высокая\"}"));
+        assertThrows(MalformedEvaluationException.class, () -> new EvaluationJsonParser().feed("{\"score\" 7}"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationProfilesTest {
+
+    @Test
+    void testBind_ProfilesFromProperties() {
+        // Arrange
+        var source = new MapConfigurationPropertySource(Map.of(
+                "bot.llm.profiles.classify.max-tokens", "3",
+                "bot.llm.profiles.classify.temperature", "0",
+                "bot.llm.profiles.classify.timeout", "2s",
+                "bot.llm.profiles.classify.retry-attempts", "0",
+                "bot.llm.profiles.classify.retry-delay", "100ms",
+                "bot.llm.profiles.classify.streaming", "false",
+                "bot.llm.profiles.classify.hedge", "true"));
+
+        // Act
+        GenerationProfiles profiles = new Binder(source).bind("bot.llm", GenerationProfiles.class).get();
+
+        // Assert
+        GenerationProfile classify = profiles.forCall(CallType.CLASSIFY);
+        assertEquals(3, classify.maxTokens());
+        assertEquals(Duration.ofSeconds(2), classify.timeout());
+        assertFalse(classify.streaming());
+        assertTrue(classify.hedge());
+        assertSame(GenerationProfiles.defaults().forCall(CallType.ANSWER), profiles.forCall(CallType.ANSWER));
+    }
+
+    @Test
+    void testDefaults_CheapCallsHaveShortBudgets() {
+        // Arrange
+        var profiles = GenerationProfiles.defaults();
+
+        // Act
+        GenerationProfile answer = profiles.forCall(CallType.ANSWER);
+        GenerationProfile classify = profiles.forCall(CallType.CLASSIFY);
+
+        // Assert
+        assertTrue(classify.maxTokens() < answer.maxTokens());
+        assertTrue(classify.timeout().compareTo(answer.timeout()) < 0);
+    }
+}
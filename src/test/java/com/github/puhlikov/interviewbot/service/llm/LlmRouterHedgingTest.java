@@ -0,0 +1,131 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmRouterHedgingTest {
+
+    private static final int WARM_UP = 3;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testStream_HedgeAnswersWhenFirstAttemptStalls() {
+        // Arrange
+        var provider = new ScriptedProvider(Flux.never());
+        var router = warmedUpRouter(provider, 1.0, Duration.ofSeconds(5));
+
+        // Act
+        String reply = router.stream(CallType.EVALUATE, "q").blockLast(Duration.ofSeconds(2));
+
+        // Assert
+        assertEquals("ok", reply);
+        assertEquals(WARM_UP + 2, provider.calls.get());
+        assertEquals(1.0, hedges("launched"));
+        assertEquals(1.0, hedges("won"));
+    }
+
+    @Test
+    void testStream_FailedFirstAttemptIsNotHedged() {
+        // Arrange
+        var provider = new ScriptedProvider(Flux.error(new IOException("Connection reset")));
+        var router = warmedUpRouter(provider, 1.0, Duration.ofSeconds(5));
+
+        // Act
+        var error = assertThrows(RuntimeException.class,
+                () -> router.stream(CallType.EVALUATE, "q").blockLast(Duration.ofSeconds(2)));
+
+        // Assert
+        assertTrue(error.getMessage().contains("Connection reset"), error.toString());
+        assertEquals(WARM_UP + 1, provider.calls.get());
+        assertEquals(0.0, hedges("launched"));
+    }
+
+    @Test
+    void testStream_HedgeBudgetCapsHedges() {
+        // Arrange
+        var provider = new ScriptedProvider(Flux.never());
+        var router = warmedUpRouter(provider, 0.0, Duration.ofMillis(200));
+
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> router.stream(CallType.EVALUATE, "q").blockLast(Duration.ofSeconds(2)));
+
+        // Assert
+        assertEquals(WARM_UP + 1, provider.calls.get());
+        assertEquals(1.0, hedges("throttled"));
+        assertEquals(0.0, hedges("launched"));
+    }
+
+    @Test
+    void testStream_OtherCallTypeLatencyDoesNotEnableHedging() {
+        // Arrange - замеры есть только у ответов, у оценок их пока нет
+        var provider = new ScriptedProvider(Flux.never());
+        var router = warmedUpRouter(provider, 1.0, Duration.ofMillis(300), CallType.ANSWER);
+
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> router.stream(CallType.EVALUATE, "q").blockLast(Duration.ofSeconds(2)));
+
+        // Assert
+        assertEquals(WARM_UP + 1, provider.calls.get());
+        assertEquals(0.0, hedges("launched"));
+        assertEquals(0.0, hedges("throttled"));
+    }
+
+    private LlmRouter warmedUpRouter(ScriptedProvider provider, double maxRatio, Duration timeout) {
+        return warmedUpRouter(provider, maxRatio, timeout, CallType.EVALUATE);
+    }
+
+    private LlmRouter warmedUpRouter(ScriptedProvider provider, double maxRatio, Duration timeout,
+                                     CallType warmUpType) {
+        var profiles = new GenerationProfiles();
+        profiles.getProfiles().put(CallType.EVALUATE,
+                new GenerationProfile(100, 0.0, timeout, 0, Duration.ZERO, true, true));
+        profiles.getHedge().setMaxRatio(maxRatio);
+        profiles.getHedge().setMinSamples(WARM_UP);
+        profiles.getHedge().setMinDelay(Duration.ofMillis(50));
+        var router = new LlmRouter(List.of(provider), Map.of(), profiles,
+                p -> new LlmUpstreamGuard(p.name(), 10, 1, 10, 60_000, 100, 30_000, meterRegistry),
+                meterRegistry);
+        for (int i = 0; i < WARM_UP; i++) {
+            router.stream(warmUpType, "warm-up").blockLast();
+        }
+        return router;
+    }
+
+    private double hedges(String result) {
+        return meterRegistry.get("bot.llm.hedges").tag("call", "evaluate").tag("result", result).counter().count();
+    }
+
+    /**
+     * Отвечает сразу, кроме первого вызова после прогрева.
+     */
+    private static final class ScriptedProvider implements LlmProvider {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Flux<String> firstAfterWarmUp;
+
+        ScriptedProvider(Flux<String> firstAfterWarmUp) {
+            this.firstAfterWarmUp = firstAfterWarmUp;
+        }
+
+        @Override
+        public String name() {
+            return "scripted";
+        }
+
+        @Override
+        public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+            return Flux.defer(() -> calls.incrementAndGet() == WARM_UP + 1 ? firstAfterWarmUp : Flux.just("ok"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testStream_FailsOverToNextProvider() {
+        // Arrange
+        var router = router(List.of(new NamedProvider("broken", new StubLlmProvider(true, 0, 1.0)),
+                new NamedProvider("healthy", new StubLlmProvider(true, 0, 0.0))),
+                Map.of(CallType.CLASSIFY, List.of("broken", "healthy")));
+
+        // Act
+        List<String> chunks = router.stream(CallType.CLASSIFY, "Что такое JVM?").collectList().block();
+
+        // Assert
+        assertEquals(List.of("ДА"), chunks);
+        assertEquals(1.0, meterRegistry.get("bot.llm.failovers").tag("call", "classify").counter().count());
+    }
+
+    @Test
+    void testStream_AttemptLimitedByProfileTimeout() {
+        // Arrange
+        var profiles = new GenerationProfiles();
+        profiles.getProfiles().put(CallType.CLASSIFY,
+                new GenerationProfile(5, 0.0, Duration.ofMillis(20), 0, Duration.ZERO, false, false));
+        var slow = new NamedProvider("slow", new StubLlmProvider(true, 5_000, 0.0));
+        var router = new LlmRouter(List.of(slow), Map.of(), profiles,
+                provider -> new LlmUpstreamGuard(provider.name(), 10, 1, 10, 60_000, 5, 30_000, meterRegistry),
+                meterRegistry);
+
+        // Act & Assert
+        var error = assertThrows(RuntimeException.class,
+                () -> router.stream(CallType.CLASSIFY, "q").blockLast(Duration.ofSeconds(2)));
+        assertTrue(error.getCause() instanceof TimeoutException, error.toString());
+    }
+
+    @Test
+    void testStream_DoesNotSwitchProviderAfterFirstChunk() {
+        // Arrange
+        LlmProvider interrupted = provider("interrupted",
+                Flux.concat(Flux.just("начало"), Flux.error(new IOException("Connection reset"))));
+        LlmProvider healthy = provider("healthy", Flux.just("другой ответ"));
+        var router = router(List.of(interrupted, healthy), Map.of(CallType.ANSWER, List.of("interrupted")));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> router.stream(CallType.ANSWER, "q").collectList().block());
+    }
+
+    @Test
+    void testRoutes_SkipUnknownAndDisabledProviders() {
+        // Arrange
+        var disabled = new StubLlmProvider(false, 0, 0.0);
+
+        // Act
+        var router = router(List.of(provider("a", Flux.just("x")), disabled, provider("b", Flux.just("y"))),
+                Map.of(CallType.EVALUATE, List.of("missing", StubLlmProvider.NAME, "b")));
+
+        // Assert
+        assertEquals(List.of("b"), router.providerNames(CallType.EVALUATE));
+        assertEquals(List.of("a", "b"), router.providerNames(CallType.ANSWER));
+    }
+
+    @Test
+    void testStream_RecordsFirstChunkLatency() {
+        // Arrange
+        var slow = new NamedProvider("slow", new StubLlmProvider(true, 50, 0.0));
+        var router = router(List.of(slow), Map.of());
+        double initial = router.latencyMs("slow", CallType.ANSWER);
+
+        // Act
+        router.stream(CallType.ANSWER, "q").blockLast();
+
+        // Assert
+        assertTrue(router.latencyMs("slow", CallType.ANSWER) < initial);
+        assertEquals(initial, router.latencyMs("slow", CallType.EVALUATE));
+        assertEquals(1L, meterRegistry.get("bot.llm.provider.first-chunk").tag("provider", "slow")
+                .tag("call", "answer").timer().count());
+        assertEquals(0L, meterRegistry.get("bot.llm.provider.first-chunk").tag("provider", "slow")
+                .tag("call", "evaluate").timer().count());
+    }
+
+    private LlmRouter router(List<LlmProvider> providers, Map<CallType, List<String>> routes) {
+        return new LlmRouter(providers, routes, GenerationProfiles.defaults(),
+                provider -> new LlmUpstreamGuard(provider.name(), 10, 1, 10, 60_000, 5, 30_000, meterRegistry),
+                meterRegistry, () -> 0.0);
+    }
+
+    private static LlmProvider provider(String name, Flux<String> reply) {
+        return new LlmProvider() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+                return reply;
+            }
+        };
+    }
+
+    private record NamedProvider(String name, LlmProvider delegate) implements LlmProvider {
+        @Override
+        public Flux<String> stream(CallType type, GenerationProfile profile, String prompt) {
+            return delegate.stream(type, profile, prompt);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.puhlikov.interviewbot.service.llm;
+
+import com.github.puhlikov.interviewbot.bot.constants.Messages;
+import com.github.puhlikov.interviewbot.exception.UpstreamUnavailableException;
+import com.github.puhlikov.interviewbot.service.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmUpstreamGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testGuard_RejectsAboveConcurrencyLimit() {
+        // Arrange
+        var guard = new LlmUpstreamGuard("test", 1, 1, 1, 60_000, 5, 30_000, meterRegistry);
+        Sinks.Many<String> pending = Sinks.many().unicast().onBackpressureBuffer();
+        var first = guard.guard(pending.asFlux()).subscribe();
+
+        // Act
+        var error = assertThrows(UpstreamUnavailableException.class,
+                () -> guard.guard(Flux.just("chunk")).blockLast());
+        first.dispose();
+        String afterRelease = guard.guard(Flux.just("chunk")).blockLast();
+
+        // Assert
+        assertEquals(Messages.AI_OVERLOADED, error.getUserMessage());
+        assertEquals("chunk", afterRelease);
+        assertEquals(1.0, meterRegistry.get("bot.llm.rejected").tag("reason", "limit").counter().count());
+    }
+
+    @Test
+    void testGuard_OpenCircuitFailsFastWithoutSubscribing() {
+        // Arrange
+        var guard = new LlmUpstreamGuard("test", 10, 1, 10, 60_000, 2, 60_000, meterRegistry);
+        Flux<String> failing = Flux.error(new IOException("Connection reset"));
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RuntimeException.class, () -> guard.guard(failing).blockLast());
+        }
+        boolean[] subscribed = new boolean[1];
+
+        // Act
+        var error = assertThrows(UpstreamUnavailableException.class, () -> guard.guard(
+                Flux.just("chunk").doOnSubscribe(s -> subscribed[0] = true)).blockLast());
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitState());
+        assertEquals(Messages.AI_UNAVAILABLE, error.getUserMessage());
+        assertFalse(subscribed[0]);
+        assertEquals(1.0, meterRegistry.get("bot.llm.circuit.state").gauge().value());
+        assertEquals(1.0, meterRegistry.get("bot.llm.rejected").tag("reason", "circuit_open").counter().count());
+    }
+
+    @Test
+    void testGuard_CompletedByConsumer_CountsAsSuccess() {
+        // Arrange
+        var guard = new LlmUpstreamGuard("test", 10, 1, 10, 60_000, 2, 60_000, meterRegistry);
+        Flux<String> failing = Flux.error(new IOException("Connection reset"));
+        assertThrows(RuntimeException.class, () -> guard.guard(failing).blockLast());
+
+        // Act - полный ответ получен до конца потока, остаток отменяется
+        String last = LlmUpstreamGuard.takeUntilComplete(guard.guard(Flux.just("{", "}", "tail")), "}"::equals)
+                .blockLast();
+        assertThrows(RuntimeException.class, () -> guard.guard(failing).blockLast());
+
+        // Assert - успех сбросил счетчик ошибок, вторая ошибка подряд не открывает автомат
+        assertEquals("}", last);
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitState());
+    }
+
+    @Test
+    void testGuard_PlainCancel_NotCountedAsSuccess() {
+        // Arrange
+        var guard = new LlmUpstreamGuard("test", 10, 1, 10, 60_000, 2, 60_000, meterRegistry);
+        Flux<String> failing = Flux.error(new IOException("Connection reset"));
+        assertThrows(RuntimeException.class, () -> guard.guard(failing).blockLast());
+
+        // Act
+        guard.guard(Flux.just("{", "}", "tail")).take(1).blockLast();
+        assertThrows(RuntimeException.class, () -> guard.guard(failing).blockLast());
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitState());
+    }
+}
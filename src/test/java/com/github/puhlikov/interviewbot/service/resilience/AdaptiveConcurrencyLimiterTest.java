@@ -0,0 +1,88 @@
+package com.github.puhlikov.interviewbot.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = 1_000L;
+
+    @Test
+    void testTryAcquire_RejectsAboveLimit() {
+        // Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, THRESHOLD, 0.5);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testOnSuccess_FastResponsesUnderLoadIncreaseLimit() {
+        // Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, THRESHOLD, 0.5);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.onSuccess(THRESHOLD);
+            limiter.onSuccess(THRESHOLD);
+        }
+
+        // Assert
+        assertTrue(limiter.getLimit() > 2);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testOnSuccess_IdleLimiterDoesNotGrow() {
+        // Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(10, 1, 50, THRESHOLD, 0.5);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(1L);
+        }
+
+        // Assert
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testSlowResponsesAndErrors_DecreaseLimitDownToMin() {
+        // Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, THRESHOLD, 0.5);
+
+        // Act
+        limiter.tryAcquire();
+        limiter.onSuccess(THRESHOLD + 1);
+        int afterSlow = limiter.getLimit();
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.onDropped();
+        }
+
+        // Assert
+        assertEquals(4, afterSlow);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testOnIgnored_ReleasesPermitWithoutChangingLimit() {
+        // Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, THRESHOLD, 0.5);
+        limiter.tryAcquire();
+
+        // Act
+        limiter.onIgnored();
+
+        // Assert
+        assertEquals(1, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+    }
+}
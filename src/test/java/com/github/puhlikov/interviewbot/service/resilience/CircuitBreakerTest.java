@@ -0,0 +1,85 @@
+package com.github.puhlikov.interviewbot.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_NANOS = 1_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_NANOS, clock::get);
+
+    @Test
+    void testOnFailure_OpensAfterConsecutiveFailures() {
+        // Act
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        CircuitBreaker.State beforeThreshold = breaker.getState();
+        breaker.onFailure();
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, beforeThreshold);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testHalfOpen_AllowsSingleProbeAndClosesOnSuccess() {
+        // Arrange
+        open();
+        clock.addAndGet(OPEN_NANOS);
+
+        // Act
+        boolean probe = breaker.tryAcquirePermission();
+        boolean secondDuringProbe = breaker.tryAcquirePermission();
+        breaker.onSuccess();
+
+        // Assert
+        assertTrue(probe);
+        assertFalse(secondDuringProbe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testHalfOpen_FailedProbeReopens() {
+        // Arrange
+        open();
+        clock.addAndGet(OPEN_NANOS);
+        breaker.tryAcquirePermission();
+
+        // Act
+        breaker.onFailure();
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testHalfOpen_CancelledProbeCanBeRetried() {
+        // Arrange
+        open();
+        clock.addAndGet(OPEN_NANOS);
+        breaker.tryAcquirePermission();
+
+        // Act
+        breaker.onIgnored();
+
+        // Assert
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+}
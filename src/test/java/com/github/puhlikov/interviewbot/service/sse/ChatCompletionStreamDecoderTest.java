@@ -0,0 +1,118 @@
+package com.github.puhlikov.interviewbot.service.sse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatCompletionStreamDecoderTest {
+
+    private static String chunk(String content) {
+        return "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"}}]}\n\n";
+    }
+
+    @Test
+    void testDecode_SingleBuffer() {
+        // Arrange
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        byte[] bytes = (chunk("Привет") + chunk(", мир") + "data: [DONE]\n\n").getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        List<String> result = decoder.decode(bytes, 0, bytes.length);
+
+        // Assert
+        assertEquals(List.of("Привет", ", мир"), result);
+        assertTrue(decoder.finish().isEmpty());
+    }
+
+    @Test
+    void testDecode_LinesAndMultibyteCharsSplitAcrossBuffers() {
+        // Arrange - режем поток по одному байту, в том числе посередине кириллических символов
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        byte[] bytes = (chunk("Сборщик") + chunk(" мусора")).getBytes(StandardCharsets.UTF_8);
+        List<String> result = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < bytes.length; i++) {
+            result.addAll(decoder.decode(bytes, i, 1));
+        }
+        result.addAll(decoder.finish());
+
+        // Assert
+        assertEquals(List.of("Сборщик", " мусора"), result);
+    }
+
+    @Test
+    void testDecode_DataBufferIsReleased() {
+        // Arrange
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance
+                .wrap(chunk("ok").getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        List<String> result = decoder.decode(buffer);
+
+        // Assert
+        assertEquals(List.of("ok"), result);
+    }
+
+    @Test
+    void testDecode_AnsiCodesAndCrLfStripped() {
+        // Arrange
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        String line = "\u001B[32mdata:{\"choices\":[{\"delta\":{\"content\":\"x\"}}]}\u001B[0m\r\n";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        List<String> result = decoder.decode(bytes, 0, bytes.length);
+
+        // Assert
+        assertEquals(List.of("x"), result);
+    }
+
+    @Test
+    void testDecode_LastLineWithoutNewline() {
+        // Arrange
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        byte[] bytes = chunk("tail").trim().getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        List<String> beforeFinish = decoder.decode(bytes, 0, bytes.length);
+        List<String> afterFinish = decoder.finish();
+
+        // Assert
+        assertTrue(beforeFinish.isEmpty());
+        assertEquals(List.of("tail"), afterFinish);
+    }
+
+    @Test
+    void testDecode_MalformedJsonSkipped() {
+        // Arrange
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        byte[] bytes = ("data: {\"choices\":[{\"delta\":\n" + chunk("next") + ": keep-alive\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        List<String> result = decoder.decode(bytes, 0, bytes.length);
+
+        // Assert
+        assertEquals(List.of("next"), result);
+    }
+
+    @Test
+    void testDecode_ApiErrorThrows() {
+        // Arrange
+        ChatCompletionStreamDecoder decoder = new ChatCompletionStreamDecoder();
+        byte[] bytes = "data: {\"error\":{\"message\":\"quota exceeded\"}}\n".getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> decoder.decode(bytes, 0, bytes.length));
+        assertEquals("API Error: quota exceeded", exception.getMessage());
+    }
+}
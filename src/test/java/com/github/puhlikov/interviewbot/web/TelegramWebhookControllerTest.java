@@ -0,0 +1,110 @@
+package com.github.puhlikov.interviewbot.web;
+
+import com.github.puhlikov.interviewbot.bot.InterviewTelegramBot;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(TelegramWebhookController.class)
+@TestPropertySource(properties = {
+        "telegram.bot.mode=webhook",
+        "telegram.webhook.path=/telegram/webhook",
+        "telegram.webhook.secret=s3cret"
+})
+class TelegramWebhookControllerTest {
+
+    private static final String TEXT_UPDATE = """
+            {
+              "update_id": 1001,
+              "message": {
+                "message_id": 7,
+                "date": 1700000000,
+                "chat": {"id": 12345, "type": "private"},
+                "from": {"id": 12345, "is_bot": false, "first_name": "John"},
+                "text": "/start"
+              }
+            }
+            """;
+
+    private static final String CALLBACK_UPDATE = """
+            {
+              "update_id": 1002,
+              "callback_query": {
+                "id": "cb-1",
+                "from": {"id": 12345, "is_bot": false, "first_name": "John"},
+                "chat_instance": "ci",
+                "data": "NEXT_QUESTION",
+                "message": {
+                  "message_id": 8,
+                  "date": 1700000001,
+                  "chat": {"id": 12345, "type": "private"}
+                }
+              }
+            }
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private InterviewTelegramBot bot;
+
+    @Test
+    void testOnUpdate_TextMessagePassedToBot() throws Exception {
+        // Act
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(TelegramWebhookController.SECRET_HEADER, "s3cret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TEXT_UPDATE))
+                .andExpect(status().isOk());
+
+        // Assert
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(bot, times(1)).onUpdateReceived(captor.capture());
+        Update update = captor.getValue();
+        assertEquals(1001, update.getUpdateId());
+        assertEquals(12345L, update.getMessage().getChatId());
+        assertEquals("/start", update.getMessage().getText());
+    }
+
+    @Test
+    void testOnUpdate_CallbackQueryPassedToBot() throws Exception {
+        // Act
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(TelegramWebhookController.SECRET_HEADER, "s3cret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(CALLBACK_UPDATE))
+                .andExpect(status().isOk());
+
+        // Assert
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(bot).onUpdateReceived(captor.capture());
+        assertTrue(captor.getValue().hasCallbackQuery());
+        assertEquals("NEXT_QUESTION", captor.getValue().getCallbackQuery().getData());
+    }
+
+    @Test
+    void testOnUpdate_WrongSecretRejected() throws Exception {
+        // Act
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(TelegramWebhookController.SECRET_HEADER, "wrong")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TEXT_UPDATE))
+                .andExpect(status().isUnauthorized());
+
+        // Assert
+        verify(bot, never()).onUpdateReceived(any());
+    }
+}